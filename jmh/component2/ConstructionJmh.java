@@ -0,0 +1,31 @@
+package component2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The JMH version of ConstructionBenchmark: the construction of a problem instance (customers, vehicles and distance
+ * matrix). The larger sizes need a big heap, hence the -Xmx8g of the forked JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ConstructionJmh {
+
+    @Param({"30", "500", "5000", "20000"})
+    public int size;
+
+    @Benchmark
+    public ProblemInitializer problemInitializer() {
+        return new ProblemInitializer(61092, this.size, this.size);
+    }
+}
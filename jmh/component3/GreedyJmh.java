@@ -0,0 +1,52 @@
+package component3;
+
+import component1.Solution;
+import component2.ProblemInitializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The JMH version of GreedyBenchmark: the greedy construction of a solution, with and without the spatial index, and
+ * the savings construction.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class GreedyJmh {
+
+    @Param({"30", "500", "5000", "20000"})
+    public int size;
+
+    private ProblemInitializer initializer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.initializer = new ProblemInitializer(61092, this.size, this.size);
+    }
+
+    @Benchmark
+    public Solution greedy() {
+        return new GreedyVRP(this.initializer).findSolution();
+    }
+
+    @Benchmark
+    public Solution greedyWithGrid() {
+        return new GreedyVRP(this.initializer, true).findSolution();
+    }
+
+    @Benchmark
+    public Solution savings() {
+        return new SavingsVRP(this.initializer).findSolution();
+    }
+}
@@ -0,0 +1,47 @@
+package component4;
+
+import component1.Solution;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The JMH version of IntraSearchBenchmark: one sweep of the intra-route relocation neighborhood over the greedy
+ * solution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class IntraSearchJmh {
+
+    @Param({"30", "500", "5000", "20000"})
+    public int size;
+
+    private Solution solution;
+
+    private IntraLocalSearchVRP intraLocalSearchVRP;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, this.size, this.size));
+        this.solution = greedyVRP.findSolution();
+        this.intraLocalSearchVRP = new IntraLocalSearchVRP(greedyVRP.getDistanceMatrix());
+    }
+
+    @Benchmark
+    public IntraRelocationMove findBestIntraRelocationMove() {
+        return this.intraLocalSearchVRP.findBestIntraRelocationMove(this.solution);
+    }
+}
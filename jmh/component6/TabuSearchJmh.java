@@ -0,0 +1,48 @@
+package component6;
+
+import component1.Solution;
+import component2.DistanceMatrix;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The JMH version of TabuSearchBenchmark: a fixed-length tabu search run, starting from the greedy solution, with its
+ * own tabu search and copy of the initial solution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TabuSearchJmh {
+
+    @Param({"30", "500", "5000", "20000"})
+    public int size;
+
+    private Solution initialSolution;
+
+    private DistanceMatrix distanceMatrix;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, this.size, this.size));
+        this.initialSolution = greedyVRP.findSolution();
+        this.distanceMatrix = greedyVRP.getDistanceMatrix();
+    }
+
+    @Benchmark
+    public Solution tabuSearch() {
+        return TabuSearchBenchmark.run(this.initialSolution, this.distanceMatrix);
+    }
+}
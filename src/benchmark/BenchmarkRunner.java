@@ -0,0 +1,175 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * A small benchmark harness for the VRP algorithms, in the spirit of JMH: every benchmark runs a number of warm-up
+ * iterations (so that the JIT compiler settles), followed by a number of measured iterations of fixed duration.
+ * For every benchmark it reports the throughput (operations per second, with the half-width of its 99.9% confidence
+ * interval over the measured iterations) and the allocation rate (bytes per operation and MB per second), measured on
+ * the benchmark thread through the ThreadMXBean, like the "gc" profiler of JMH does.
+ *
+ * The benchmarks themselves live next to the code they measure (e.g. component2.ConstructionBenchmark) and take the
+ * instance sizes as arguments. The default sizes are 30, 500, 5000 and 20000 customers; the larger ones need a big heap
+ * (e.g. -Xmx8g). The same benchmarks run under JMH itself from the "jmh" profile of the Maven build (e.g.
+ * component5.InterSearchJmh), which is what CI should use; this harness needs nothing but the JDK.
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * A benchmarked operation. Its result is consumed, so that the JIT compiler cannot eliminate the work.
+     */
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * The instance sizes, in number of customers, used when none are given.
+     */
+    private static final int[] DEFAULT_SIZES = {30, 500, 5000, 20000};
+
+    /**
+     * The number of warm-up iterations.
+     */
+    private static final int WARMUP_ITERATIONS = 3;
+
+    /**
+     * The number of measured iterations.
+     */
+    private static final int MEASUREMENT_ITERATIONS = 5;
+
+    /**
+     * The duration of every iteration, in nanoseconds. An iteration runs at least one operation, even if it takes longer.
+     */
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+
+    /**
+     * The 99.95% quantiles of the Student t distribution with 1 to 30 degrees of freedom, i.e. the factors of the
+     * half-width of a two-sided 99.9% confidence interval, like JMH reports.
+     */
+    private static final double[] T_QUANTILES = {
+            636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646
+    };
+
+    /**
+     * The 99.95% quantile of the standard normal distribution.
+     */
+    private static final double Z_QUANTILE = 3.2905;
+
+    /**
+     * Consumes the results of the operations.
+     */
+    private static volatile int sink;
+
+    private BenchmarkRunner() {}
+
+    /**
+     * Parses the instance sizes from the command line arguments.
+     *
+     * @param args The arguments of the benchmark, one size per argument
+     * @return The sizes to be benchmarked
+     */
+    public static int[] sizes(String[] args) {
+        if (args.length == 0)
+            return DEFAULT_SIZES.clone();
+
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        return sizes;
+    }
+
+    /**
+     * Runs a benchmark and prints its results.
+     *
+     * @param name The name of the benchmark
+     * @param size The size of the instance, in number of customers
+     * @param operation The operation to be measured
+     */
+    public static void run(String name, int size, Operation operation) throws Exception {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(operation);
+        }
+
+        double[] throughput = new double[MEASUREMENT_ITERATIONS];
+        long operations = 0;
+        long nanos = 0;
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long count = iteration(operation);
+            long elapsed = System.nanoTime() - start;
+
+            throughput[i] = count * 1e9 / elapsed;
+            operations += count;
+            nanos += elapsed;
+        }
+
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        // The mean throughput and the half-width of its 99.9% confidence interval. There are only a few iterations, so
+        // the interval uses the Student t distribution: with 5 iterations its factor is 8.61 instead of 3.29.
+        double mean = 0;
+        for (double value: throughput) {
+            mean += value / throughput.length;
+        }
+        double variance = 0;
+        for (double value: throughput) {
+            variance += (value - mean) * (value - mean) / Math.max(1, throughput.length - 1);
+        }
+        double error = tQuantile(throughput.length - 1) * Math.sqrt(variance / throughput.length);
+
+        System.out.println(String.format(Locale.ROOT,
+                "%-32s customers=%-6d %14.3f +- %10.3f ops/s %16.1f B/op %10.1f MB/s",
+                name, size, mean, error, (double) allocated / operations, allocated * 1e3 / nanos));
+    }
+
+    /**
+     * Returns the 99.95% quantile of the Student t distribution, or NaN if there are no degrees of freedom. Above 30
+     * degrees of freedom it is the Cornish-Fisher expansion around the normal quantile, which is within 0.001 there.
+     *
+     * @param degreesOfFreedom The number of measured iterations minus one
+     */
+    static double tQuantile(int degreesOfFreedom) {
+        if (degreesOfFreedom < 1)
+            return Double.NaN;
+
+        if (degreesOfFreedom <= T_QUANTILES.length)
+            return T_QUANTILES[degreesOfFreedom - 1];
+
+        double z = Z_QUANTILE;
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+        double df = degreesOfFreedom;
+
+        return z + (z3 + z) / (4 * df) + (5 * z5 + 16 * z3 + 3 * z) / (96 * df * df);
+    }
+
+    /**
+     * Runs the operation repeatedly for the duration of an iteration.
+     *
+     * @return The number of operations performed
+     */
+    private static long iteration(Operation operation) throws Exception {
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        long count = 0;
+
+        do {
+            Object result = operation.run();
+            sink += result == null ? 0 : System.identityHashCode(result);
+            count++;
+        } while (System.nanoTime() < deadline);
+
+        return count;
+    }
+}
@@ -0,0 +1,434 @@
+package component1;
+
+import component2.DistanceMatrix;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An array-backed representation of a solution to the VRP problem, meant for the hot loops of the search algorithms.
+ *
+ * Every route is kept as an int[] of node ids (the depot is at both ends, exactly like in Route), together with the
+ * prefix sums of its load and cost: loadPrefix[r][p] and costPrefix[r][p] are the load and the cost of route r from
+ * the depot up to position p. A global index keeps the route and the position of every customer, so a customer can be
+ * located in O(1). Reading ids, positions, loads and costs does not allocate or follow any object reference.
+ *
+ * The routes are also grouped into (at most 64) buckets by their residual capacity, so that a search can skip whole
+ * groups of routes that cannot serve a given demand without looking at them.
+ */
+public class ArraySolution {
+
+    /**
+     * The distance matrix of the problem.
+     */
+    private final DistanceMatrix distanceMatrix;
+
+    /**
+     * All the nodes of the problem, indexed by id.
+     */
+    private final Node[] nodes;
+
+    /**
+     * The demand of every node, indexed by id.
+     */
+    private final int[] demand;
+
+    /**
+     * The capacity of every route.
+     */
+    private final int[] capacity;
+
+    /**
+     * The load of every route.
+     */
+    private final int[] routeLoad;
+
+    /**
+     * The number of bits that the residual capacity of a route is shifted by, to give its bucket.
+     */
+    private final int bucketShift;
+
+    /**
+     * The first route of every bucket, or -1 if the bucket is empty.
+     */
+    private final int[] bucketHead;
+
+    /**
+     * The next and previous route within the bucket of every route, or -1.
+     */
+    private final int[] nextInBucket, previousInBucket;
+
+    /**
+     * The bucket of every route.
+     */
+    private final int[] bucketOf;
+
+    /**
+     * A bit for every bucket, set if the bucket has at least one route.
+     */
+    private long nonEmptyBuckets;
+
+    /**
+     * The node ids of every route. Only the first routeSize[r] positions of routes[r] are used.
+     */
+    private final int[][] routes;
+
+    /**
+     * The number of nodes (depot included twice) of every route.
+     */
+    private final int[] routeSize;
+
+    /**
+     * The load of every route from the depot up to every position.
+     */
+    private final int[][] loadPrefix;
+
+    /**
+     * The cost of every route from the depot up to every position.
+     */
+    private final double[][] costPrefix;
+
+    /**
+     * The route that serves every customer, indexed by id. It is -1 for the depot.
+     */
+    private final int[] routeOf;
+
+    /**
+     * The position of every customer within its route, indexed by id. It is -1 for the depot.
+     */
+    private final int[] positionOf;
+
+    /**
+     * The total cost of the solution.
+     */
+    private double totalCost;
+
+    /**
+     * Constructor
+     *
+     * @param solution The solution to be represented. It is not modified.
+     * @param distanceMatrix The distance matrix of the problem.
+     */
+    public ArraySolution(Solution solution, DistanceMatrix distanceMatrix) {
+        List<Route> routes = solution.getRoutes();
+        int size = distanceMatrix.getSize();
+
+        this.distanceMatrix = distanceMatrix;
+        this.nodes = new Node[size];
+        this.demand = new int[size];
+        this.capacity = new int[routes.size()];
+        this.routes = new int[routes.size()][];
+        this.routeSize = new int[routes.size()];
+        this.loadPrefix = new int[routes.size()][];
+        this.costPrefix = new double[routes.size()][];
+        this.routeOf = new int[size];
+        this.positionOf = new int[size];
+        this.routeLoad = new int[routes.size()];
+
+        Arrays.fill(this.routeOf, -1);
+        Arrays.fill(this.positionOf, -1);
+
+        // Use as few bits of the residual capacity as needed, so that there are at most 64 buckets.
+        int maxCapacity = 0;
+        for (Route route: routes) {
+            maxCapacity = Math.max(maxCapacity, route.getCapacity());
+        }
+
+        int shift = 0;
+        while ((maxCapacity >> shift) >= 64) {
+            shift++;
+        }
+
+        this.bucketShift = shift;
+        this.bucketHead = new int[64];
+        this.nextInBucket = new int[routes.size()];
+        this.previousInBucket = new int[routes.size()];
+        this.bucketOf = new int[routes.size()];
+
+        Arrays.fill(this.bucketHead, -1);
+
+        for (int r = 0; r < routes.size(); r++) {
+            List<Node> route = routes.get(r).getRoute();
+
+            this.capacity[r] = routes.get(r).getCapacity();
+            this.routeSize[r] = route.size();
+
+            // Leave some room, so that a few insertions do not need to grow the arrays.
+            int length = route.size() + 8;
+            this.routes[r] = new int[length];
+            this.loadPrefix[r] = new int[length];
+            this.costPrefix[r] = new double[length];
+
+            for (int p = 0; p < route.size(); p++) {
+                Node node = route.get(p);
+
+                this.nodes[node.getId()] = node;
+                this.demand[node.getId()] = node.getDemand();
+                this.routes[r][p] = node.getId();
+            }
+
+            this.updateRoute(r, 0);
+            this.totalCost += this.getCost(r);
+
+            this.bucketOf[r] = -1;
+            this.updateBucket(r);
+        }
+    }
+
+    /**
+     * Returns the bucket of a given residual capacity.
+     */
+    private int bucket(int residualCapacity) {
+        return Math.max(0, Math.min(63, residualCapacity >> this.bucketShift));
+    }
+
+    /**
+     * Moves route r to the bucket of its current residual capacity.
+     */
+    private void updateBucket(int r) {
+        int bucket = this.bucket(this.capacity[r] - this.routeLoad[r]);
+
+        if (bucket == this.bucketOf[r])
+            return;
+
+        // Unlink the route from its old bucket
+        if (this.bucketOf[r] != -1) {
+            if (this.previousInBucket[r] != -1)
+                this.nextInBucket[this.previousInBucket[r]] = this.nextInBucket[r];
+            else
+                this.bucketHead[this.bucketOf[r]] = this.nextInBucket[r];
+
+            if (this.nextInBucket[r] != -1)
+                this.previousInBucket[this.nextInBucket[r]] = this.previousInBucket[r];
+
+            if (this.bucketHead[this.bucketOf[r]] == -1)
+                this.nonEmptyBuckets &= ~(1L << this.bucketOf[r]);
+        }
+
+        // Link it first in the new bucket
+        this.previousInBucket[r] = -1;
+        this.nextInBucket[r] = this.bucketHead[bucket];
+        if (this.bucketHead[bucket] != -1)
+            this.previousInBucket[this.bucketHead[bucket]] = r;
+        this.bucketHead[bucket] = r;
+        this.bucketOf[r] = bucket;
+        this.nonEmptyBuckets |= 1L << bucket;
+    }
+
+    /**
+     * Recomputes the prefix sums and the position index of route r, starting from position "from".
+     */
+    private void updateRoute(int r, int from) {
+        int[] route = this.routes[r];
+        int[] load = this.loadPrefix[r];
+        double[] cost = this.costPrefix[r];
+
+        for (int p = from; p < this.routeSize[r]; p++) {
+            int node = route[p];
+
+            if (p == 0) {
+                load[p] = this.demand[node];
+                cost[p] = 0;
+            } else {
+                load[p] = load[p - 1] + this.demand[node];
+                cost[p] = cost[p - 1] + this.distanceMatrix.getDistance(route[p - 1], node);
+            }
+
+            // The depot is at both ends of every route, so it has no position of its own.
+            if (p > 0 && p < this.routeSize[r] - 1) {
+                this.routeOf[node] = r;
+                this.positionOf[node] = p;
+            }
+        }
+
+        this.routeLoad[r] = load[this.routeSize[r] - 1];
+    }
+
+    /**
+     * Makes sure that route r can hold one more node.
+     */
+    private void ensureCapacity(int r) {
+        if (this.routeSize[r] < this.routes[r].length)
+            return;
+
+        int length = this.routes[r].length * 2;
+        this.routes[r] = Arrays.copyOf(this.routes[r], length);
+        this.loadPrefix[r] = Arrays.copyOf(this.loadPrefix[r], length);
+        this.costPrefix[r] = Arrays.copyOf(this.costPrefix[r], length);
+    }
+
+    /**
+     * Removes the customer in position "fromPosition" of route "fromRoute" and inserts it into route "toRoute", so
+     * that it ends up in position "toPosition" (counted after the removal). The two routes may be the same.
+     *
+     * @param fromRoute The route that currently serves the customer
+     * @param fromPosition The position of the customer within "fromRoute"
+     * @param toRoute The route that will serve the customer
+     * @param toPosition The position of the customer within "toRoute", after the move
+     */
+    public void relocate(int fromRoute, int fromPosition, int toRoute, int toPosition) {
+        int customer = this.routes[fromRoute][fromPosition];
+
+        double oldCost = this.getCost(fromRoute) + (fromRoute == toRoute ? 0 : this.getCost(toRoute));
+
+        // Remove the customer from its route
+        System.arraycopy(this.routes[fromRoute], fromPosition + 1, this.routes[fromRoute], fromPosition,
+                this.routeSize[fromRoute] - fromPosition - 1);
+        this.routeSize[fromRoute]--;
+
+        // Insert it into the new route
+        this.ensureCapacity(toRoute);
+        System.arraycopy(this.routes[toRoute], toPosition, this.routes[toRoute], toPosition + 1,
+                this.routeSize[toRoute] - toPosition);
+        this.routes[toRoute][toPosition] = customer;
+        this.routeSize[toRoute]++;
+
+        // Only the part of the routes after the changed positions needs to be updated.
+        if (fromRoute == toRoute) {
+            this.updateRoute(fromRoute, Math.min(fromPosition, toPosition));
+        } else {
+            this.updateRoute(fromRoute, fromPosition);
+            this.updateRoute(toRoute, toPosition);
+        }
+
+        double newCost = this.getCost(fromRoute) + (fromRoute == toRoute ? 0 : this.getCost(toRoute));
+        this.totalCost += newCost - oldCost;
+
+        // The load changes only if the customer moved to another route
+        if (fromRoute != toRoute) {
+            this.updateBucket(fromRoute);
+            this.updateBucket(toRoute);
+        }
+    }
+
+    /**
+     * Creates a Solution with the same routes as this one.
+     *
+     * @return Solution
+     */
+    public Solution toSolution() {
+        Solution solution = new Solution();
+
+        for (int r = 0; r < this.routes.length; r++) {
+            Route route = new Route(this.capacity[r]);
+
+            for (int p = 0; p < this.routeSize[r]; p++) {
+                route.addNodeToRoute(this.nodes[this.routes[r][p]]);
+            }
+
+            route.setLoad(this.getLoad(r));
+            route.setCost(this.getCost(r));
+            solution.addRoute(route);
+        }
+
+        solution.setTotalCost(this.totalCost);
+
+        return solution;
+    }
+
+    public int getNumberOfRoutes() {
+        return this.routes.length;
+    }
+
+    /**
+     * Returns the number of nodes of a route, with the depot counted at both ends.
+     */
+    public int getRouteSize(int route) {
+        return this.routeSize[route];
+    }
+
+    /**
+     * Returns the id of the node in the given position of a route.
+     */
+    public int getNode(int route, int position) {
+        return this.routes[route][position];
+    }
+
+    /**
+     * Returns the route that serves a customer, or -1 for the depot and for a customer that no route serves.
+     */
+    public int getRouteOf(int customer) {
+        return this.routeOf[customer];
+    }
+
+    /**
+     * Returns the position of a customer within its route, or -1 for the depot and for a customer that no route
+     * serves.
+     */
+    public int getPositionOf(int customer) {
+        return this.positionOf[customer];
+    }
+
+    public int getDemand(int node) {
+        return this.demand[node];
+    }
+
+    public int getCapacity(int route) {
+        return this.capacity[route];
+    }
+
+    public int getLoad(int route) {
+        return this.routeLoad[route];
+    }
+
+    /**
+     * Returns the capacity of a route that is not used yet.
+     */
+    public int getResidualCapacity(int route) {
+        return this.capacity[route] - this.routeLoad[route];
+    }
+
+    /**
+     * Returns the buckets that may contain routes that can serve the given demand, one bit per bucket. Every route of
+     * these buckets but the lowest one is sure to have enough residual capacity; the routes of the lowest bucket must
+     * still be checked one by one.
+     *
+     * @param demand The demand to be served
+     * @return A bit mask of buckets, to be used with getFirstRouteInBucket
+     */
+    public long getBucketsThatFit(int demand) {
+        int bucket = this.bucket(demand);
+
+        // A demand beyond the range of the last bucket may only fit in the last bucket.
+        if ((demand >> this.bucketShift) > 63)
+            bucket = 63;
+
+        return this.nonEmptyBuckets & (-1L << bucket);
+    }
+
+    /**
+     * Returns the first route of a bucket, or -1 if it is empty.
+     */
+    public int getFirstRouteInBucket(int bucket) {
+        return this.bucketHead[bucket];
+    }
+
+    /**
+     * Returns the route after the given one within its bucket, or -1 if it is the last one.
+     */
+    public int getNextRouteInBucket(int route) {
+        return this.nextInBucket[route];
+    }
+
+    public double getCost(int route) {
+        return this.costPrefix[route][this.routeSize[route] - 1];
+    }
+
+    /**
+     * Returns the load of a route from the depot up to (and including) the given position.
+     */
+    public int getLoadUpTo(int route, int position) {
+        return this.loadPrefix[route][position];
+    }
+
+    /**
+     * Returns the cost of a route from the depot up to the given position.
+     */
+    public double getCostUpTo(int route, int position) {
+        return this.costPrefix[route][position];
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+}
@@ -44,6 +44,25 @@ public class Solution {
         this.totalCost = totalCost;
     }
 
+    /**
+     * Writes the capacity that every route has left, in the order of the routes, so that a search can check whether a
+     * demand fits in a route with a single array read. The given array is reused if it is large enough, so that a
+     * search that calls this on every iteration does not allocate.
+     *
+     * @param residualCapacities The array to fill, or null
+     * @return The capacity minus the load of every route, in the given array or in a new one if it is too small
+     */
+    public int[] getResidualCapacities(int[] residualCapacities) {
+        if (residualCapacities == null || residualCapacities.length < this.routes.size())
+            residualCapacities = new int[this.routes.size()];
+
+        for (int r = 0; r < this.routes.size(); r++) {
+            residualCapacities[r] = this.routes.get(r).getCapacity() - this.routes.get(r).getLoad();
+        }
+
+        return residualCapacities;
+    }
+
     /**
      * This function creates and returns an exact copy of the current solution
      *
@@ -0,0 +1,115 @@
+package component1;
+
+/**
+ * A snapshot of a solution that is being changed by a search, typically the best solution found so far.
+ *
+ * Instead of copying the whole solution every time a new best one is found, the search marks the routes that its
+ * moves touch, and only these routes are copied when the snapshot is updated. The rest of the routes of the snapshot
+ * are left as they are, since they are still equal to the routes of the solution. So recording a new best solution
+ * costs O(routes touched since the last one), instead of O(n).
+ *
+ * The routes of the solution must not be added or removed while it is tracked, only changed.
+ */
+public class SolutionSnapshot {
+
+    /**
+     * The solution that is being tracked.
+     */
+    private final Solution solution;
+
+    /**
+     * The copy of the solution, as it was when the snapshot was last updated.
+     */
+    private final Solution snapshot;
+
+    /**
+     * Whether every route has changed since the last update.
+     */
+    private final boolean[] dirty;
+
+    /**
+     * The routes that have changed since the last update. Only the first dirtyCount positions are used.
+     */
+    private final int[] dirtyRoutes;
+
+    /**
+     * The number of routes that have changed since the last update.
+     */
+    private int dirtyCount;
+
+    /**
+     * Constructor. Takes a full copy of the solution.
+     *
+     * @param solution The solution to be tracked.
+     */
+    public SolutionSnapshot(Solution solution) {
+        this.solution = solution;
+        this.snapshot = solution.cloneSolution();
+        this.dirty = new boolean[solution.getRoutes().size()];
+        this.dirtyRoutes = new int[solution.getRoutes().size()];
+    }
+
+    /**
+     * Marks a route of the tracked solution as changed. It must be called for every route that a move touches.
+     *
+     * @param route The position of the route in the solution.
+     */
+    public void markDirty(int route) {
+        if (!this.dirty[route]) {
+            this.dirty[route] = true;
+            this.dirtyRoutes[this.dirtyCount++] = route;
+        }
+    }
+
+    /**
+     * Makes the snapshot equal to the current state of the tracked solution, by copying only the changed routes.
+     */
+    public void update() {
+        for (int i = 0; i < this.dirtyCount; i++) {
+            int route = this.dirtyRoutes[i];
+
+            // The old copy may still be referenced by a solution returned by toSolution, so it is replaced, not changed.
+            this.snapshot.getRoutes().set(route, this.solution.getRoutes().get(route).cloneRoute());
+            this.dirty[route] = false;
+        }
+
+        this.dirtyCount = 0;
+        this.snapshot.setTotalCost(this.solution.getTotalCost());
+    }
+
+    /**
+     * Returns the total cost of the solution, as it was when the snapshot was last updated.
+     */
+    public double getTotalCost() {
+        return this.snapshot.getTotalCost();
+    }
+
+    /**
+     * Returns the snapshot itself, without copying it. It changes on every update, so it must only be read, and only
+     * until the next update.
+     *
+     * @return Solution, the snapshot.
+     */
+    public Solution getSolution() {
+        return this.snapshot;
+    }
+
+    /**
+     * Materializes the snapshot into a solution of its own, that does not change on later updates. The routes are
+     * shared with the snapshot, which never changes a route copy once it is taken, so they must not be changed either;
+     * use cloneSolution on the result to get a solution that can be searched further.
+     *
+     * @return Solution, a copy of the snapshot.
+     */
+    public Solution toSolution() {
+        Solution copy = new Solution();
+
+        for (Route route: this.snapshot.getRoutes()) {
+            copy.addRoute(route);
+        }
+
+        copy.setTotalCost(this.snapshot.getTotalCost());
+
+        return copy;
+    }
+}
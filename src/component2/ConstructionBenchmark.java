@@ -0,0 +1,15 @@
+package component2;
+
+import benchmark.BenchmarkRunner;
+
+/**
+ * Benchmarks the construction of a problem instance (customers, vehicles and distance matrix).
+ */
+class ConstructionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        for (final int size: BenchmarkRunner.sizes(args)) {
+            BenchmarkRunner.run("ProblemInitializer", size, () -> new ProblemInitializer(61092, size, size));
+        }
+    }
+}
@@ -0,0 +1,623 @@
+package component2;
+
+import component1.Node;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads an instance of the VRP from a file in the TSPLIB / CVRPLIB format, e.g.
+ *
+ *     NAME : A-n32-k5
+ *     TYPE : CVRP
+ *     DIMENSION : 32
+ *     EDGE_WEIGHT_TYPE : EUC_2D
+ *     CAPACITY : 100
+ *     NODE_COORD_SECTION
+ *      1 82 76
+ *      ...
+ *     DEMAND_SECTION
+ *     1 0
+ *     ...
+ *     DEPOT_SECTION
+ *      1
+ *      -1
+ *     EOF
+ *
+ * The file is memory-mapped and the numbers are parsed straight from the mapped bytes, without copying them into
+ * strings first. EUC_2D instances (with integer coordinates) and EXPLICIT instances in every TSPLIB edge weight format
+ * are supported, with a single depot. The DISPLAY_DATA_SECTION of EXPLICIT instances is skipped.
+ *
+ * The nodes are renumbered so that the depot gets id 0 and the customers get ids 1..n in the order of the file, the
+ * same way ProblemInitializer numbers the random instances.
+ */
+public class CvrplibLoader {
+
+    /**
+     * The type of the values kept in the distance matrix.
+     */
+    private final FlatDistanceMatrix.Precision precision;
+
+    /**
+     * The number of threads that will build the distance matrix of EUC_2D instances.
+     */
+    private final int parallelism;
+
+    /**
+     * The mapped contents of the file that is being read.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * The position of the next byte to be read.
+     */
+    private int position;
+
+    /**
+     * The size of the file.
+     */
+    private int limit;
+
+    /**
+     * Constructor
+     */
+    public CvrplibLoader() {
+        this(FlatDistanceMatrix.Precision.INT, 1);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param precision The type of the values kept in the distance matrix. Explicit weights that are not integers
+     *                  need FLOAT.
+     * @param parallelism The number of threads that will build the distance matrix of EUC_2D instances.
+     */
+    public CvrplibLoader(FlatDistanceMatrix.Precision precision, int parallelism) {
+        this.precision = precision;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reads an instance, with enough vehicles for the greedy construction. Every route of GreedyVRP but the last one
+     * is closed only when no other customer fits in it, i.e. when its load is more than the capacity minus the largest
+     * demand, which bounds the number of routes it needs. That is about the total demand divided by the capacity,
+     * instead of a vehicle per customer. Only the vehicles that are actually used appear in a solution.
+     *
+     * @param file The file of the instance
+     * @return ProblemInitializer, the instance.
+     * @throws IOException If the file cannot be read or is not a valid instance.
+     */
+    public ProblemInitializer load(Path file) throws IOException {
+        return load(file, -1);
+    }
+
+    /**
+     * Reads an instance.
+     *
+     * @param file The file of the instance
+     * @param numOfVehicles The number of available vehicles.
+     * @return ProblemInitializer, the instance.
+     * @throws IOException If the file cannot be read or is not a valid instance.
+     */
+    public synchronized ProblemInitializer load(Path file, int numOfVehicles) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException(file + " is too large to be mapped");
+
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.position = 0;
+            this.limit = (int) channel.size();
+
+            return parse(file, numOfVehicles);
+        } finally {
+            this.buffer = null;
+        }
+    }
+
+    /**
+     * Parses the mapped file.
+     */
+    private ProblemInitializer parse(Path file, int numOfVehicles) throws IOException {
+        int dimension = -1;
+        int capacity = -1;
+        String edgeWeightType = "EUC_2D";
+        String edgeWeightFormat = "FULL_MATRIX";
+
+        // The contents of the sections, indexed by the position of the node in the file (its id minus one).
+        int[] xs = null, ys = null, demands = null;
+        FlatDistanceMatrix weights = null;
+        int depot = -1;
+
+        while (true) {
+            skipWhitespace();
+
+            if (this.position >= this.limit)
+                break;
+
+            String keyword = readKeyword();
+
+            // A "KEYWORD : VALUE" line of the header
+            if (peek() == ':') {
+                this.position++;
+                String value = readLine();
+
+                switch (keyword) {
+                    case "DIMENSION":
+                        dimension = Integer.parseInt(value);
+                        break;
+                    case "CAPACITY":
+                        capacity = Integer.parseInt(value);
+                        break;
+                    case "EDGE_WEIGHT_TYPE":
+                        edgeWeightType = value;
+                        break;
+                    case "EDGE_WEIGHT_FORMAT":
+                        edgeWeightFormat = value;
+                        break;
+                    default:
+                        // NAME, COMMENT, TYPE, ... are not needed
+                        break;
+                }
+                continue;
+            }
+
+            if (keyword.equals("EOF"))
+                break;
+
+            if (dimension <= 0)
+                throw new IOException(file + ": " + keyword + " before a valid DIMENSION");
+
+            switch (keyword) {
+                case "NODE_COORD_SECTION":
+                    xs = new int[dimension];
+                    ys = new int[dimension];
+
+                    for (int i = 0; i < dimension; i++) {
+                        int node = readNodeId(dimension);
+                        xs[node] = readIntCoordinate();
+                        ys[node] = readIntCoordinate();
+                    }
+                    break;
+
+                case "DEMAND_SECTION":
+                    demands = new int[dimension];
+
+                    for (int i = 0; i < dimension; i++) {
+                        int node = readNodeId(dimension);
+                        demands[node] = (int) readLong();
+                    }
+                    break;
+
+                case "DEPOT_SECTION":
+                    // A list of depots, terminated by -1
+                    for (long id = readLong(); id != -1; id = readLong()) {
+                        if (depot != -1)
+                            throw new IOException(file + ": only instances with a single depot are supported");
+                        if (id < 1 || id > dimension)
+                            throw new IOException(file + ": depot " + id + " is not a node");
+                        depot = (int) id - 1;
+                    }
+                    break;
+
+                case "EDGE_WEIGHT_SECTION":
+                    weights = readWeights(dimension, edgeWeightFormat);
+                    break;
+
+                case "DISPLAY_DATA_SECTION":
+                    // The coordinates to draw the nodes of an EXPLICIT instance with. They are not needed, and they may
+                    // be fractional, so only the node ids are checked.
+                    for (int i = 0; i < dimension; i++) {
+                        readNodeId(dimension);
+                        readLine();
+                    }
+                    break;
+
+                default:
+                    throw new IOException(file + ": unsupported section " + keyword);
+            }
+        }
+
+        if (dimension <= 0 || capacity <= 0 || demands == null)
+            throw new IOException(file + ": DIMENSION, CAPACITY and DEMAND_SECTION are required");
+
+        // Without a DEPOT_SECTION, the first node is the depot.
+        if (depot == -1)
+            depot = 0;
+
+        // The new id of every node of the file: 0 for the depot, 1..n for the customers in the order of the file.
+        int[] newId = new int[dimension];
+        for (int i = 0, next = 1; i < dimension; i++) {
+            newId[i] = i == depot ? 0 : next++;
+        }
+
+        Node[] nodes = new Node[dimension];
+        for (int i = 0; i < dimension; i++) {
+            Node node = new Node();
+            node.setId(newId[i]);
+            node.setDemand(i == depot ? 0 : demands[i]);
+            node.setX(xs == null ? 0 : xs[i]);
+            node.setY(ys == null ? 0 : ys[i]);
+
+            nodes[newId[i]] = node;
+        }
+
+        List<Node> customers = new ArrayList<>(dimension);
+        for (Node node: nodes) {
+            customers.add(node);
+        }
+
+        DistanceMatrix distanceMatrix;
+
+        if (edgeWeightType.equals("EUC_2D")) {
+            if (xs == null)
+                throw new IOException(file + ": EUC_2D instances need a NODE_COORD_SECTION");
+
+            distanceMatrix = createEuclideanMatrix(customers);
+        } else if (edgeWeightType.equals("EXPLICIT")) {
+            if (weights == null)
+                throw new IOException(file + ": EXPLICIT instances need an EDGE_WEIGHT_SECTION");
+
+            distanceMatrix = depot == 0 ? weights : renumber(weights, newId);
+        } else {
+            throw new IOException(file + ": unsupported EDGE_WEIGHT_TYPE " + edgeWeightType);
+        }
+
+        if (numOfVehicles < 0)
+            numOfVehicles = defaultVehicles(file, demands, depot, capacity);
+
+        return new ProblemInitializer(customers, numOfVehicles, capacity, distanceMatrix);
+    }
+
+    /**
+     * Returns the number of vehicles that the greedy construction needs at most: the routes it closes carry more than
+     * capacity - maxDemand each, plus the last one.
+     *
+     * @param file The file of the instance
+     * @param demands The demand of every node, indexed by its position in the file
+     * @param depot The position of the depot in the file
+     * @param capacity The capacity of every vehicle
+     */
+    private static int defaultVehicles(Path file, int[] demands, int depot, int capacity) throws IOException {
+        long totalDemand = 0;
+        int maxDemand = 0;
+
+        for (int i = 0; i < demands.length; i++) {
+            if (i == depot)
+                continue;
+
+            if (demands[i] < 0 || demands[i] > capacity)
+                throw new IOException(file + ": the demand " + demands[i] + " of node " + (i + 1) +
+                        " does not fit in a vehicle of capacity " + capacity);
+
+            totalDemand += demands[i];
+            maxDemand = Math.max(maxDemand, demands[i]);
+        }
+
+        long closedRoutes = (totalDemand + capacity - maxDemand) / (capacity - maxDemand + 1);
+
+        return (int) Math.max(1, Math.min(demands.length - 1, closedRoutes + 1));
+    }
+
+    /**
+     * Creates the distance matrix of a EUC_2D instance. The flat matrix is used while it fits in a single array,
+     * otherwise the distances are computed on demand.
+     */
+    private DistanceMatrix createEuclideanMatrix(List<Node> customers) {
+        long cells = (long) customers.size() * (customers.size() + 1) / 2;
+
+        if (cells > Integer.MAX_VALUE - 8)
+            return new EuclideanDistanceOracle(customers, 0);
+
+        return new ParallelDistanceMatrixBuilder(this.parallelism).build(customers, this.precision);
+    }
+
+    /**
+     * Copies the weights of an EXPLICIT instance, indexed by the position of the nodes in the file, into a matrix
+     * indexed by the new ids. Only needed when the depot is not the first node of the file.
+     *
+     * @param weights The weights of the file
+     * @param newId The new id of every node of the file
+     */
+    private FlatDistanceMatrix renumber(FlatDistanceMatrix weights, int[] newId) {
+        FlatDistanceMatrix matrix = FlatDistanceMatrix.create(weights.getSize(), this.precision);
+
+        for (int i = 0; i < weights.getSize(); i++) {
+            for (int j = 0; j <= i; j++) {
+                matrix.setDistance(newId[i], newId[j], weights.getDistance(i, j));
+            }
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Reads an EDGE_WEIGHT_SECTION into a distance matrix, indexed by the position of the nodes in the file. The
+     * weights must be symmetric, since the matrix keeps a single triangle; a FULL_MATRIX that is not is rejected.
+     *
+     * @param dimension The number of nodes
+     * @param format The EDGE_WEIGHT_FORMAT of the file
+     * @return FlatDistanceMatrix, the weights.
+     */
+    private FlatDistanceMatrix readWeights(int dimension, String format) throws IOException {
+        FlatDistanceMatrix weights = FlatDistanceMatrix.create(dimension, this.precision);
+
+        // Every triangular format is read as a lower or upper row format; a column format of one triangle has the
+        // same order as the row format of the other, since the matrix is symmetric.
+        switch (format) {
+            case "FULL_MATRIX":
+                // The upper triangle is stored as it is read, and every weight of the lower triangle must match it.
+                for (int i = 0; i < dimension; i++) {
+                    for (int j = 0; j < dimension; j++) {
+                        double weight = readNumber();
+
+                        if (j >= i) {
+                            weights.setDistance(i, j, weight);
+                        } else if (weights.getDistance(i, j) != stored(weight)) {
+                            throw new IOException("The FULL_MATRIX is not symmetric: the weight of " + (i + 1) + "-" +
+                                    (j + 1) + " is " + weight + " but the weight of " + (j + 1) + "-" + (i + 1) +
+                                    " is " + weights.getDistance(i, j));
+                        }
+                    }
+                }
+                return weights;
+
+            case "LOWER_ROW":
+            case "UPPER_COL":
+                for (int i = 1; i < dimension; i++) {
+                    for (int j = 0; j < i; j++) {
+                        weights.setDistance(i, j, readNumber());
+                    }
+                }
+                return weights;
+
+            case "LOWER_DIAG_ROW":
+            case "UPPER_DIAG_COL":
+                for (int i = 0; i < dimension; i++) {
+                    for (int j = 0; j <= i; j++) {
+                        weights.setDistance(i, j, readNumber());
+                    }
+                }
+                return weights;
+
+            case "UPPER_ROW":
+            case "LOWER_COL":
+                for (int i = 0; i < dimension; i++) {
+                    for (int j = i + 1; j < dimension; j++) {
+                        weights.setDistance(i, j, readNumber());
+                    }
+                }
+                return weights;
+
+            case "UPPER_DIAG_ROW":
+            case "LOWER_DIAG_COL":
+                for (int i = 0; i < dimension; i++) {
+                    for (int j = i; j < dimension; j++) {
+                        weights.setDistance(i, j, readNumber());
+                    }
+                }
+                return weights;
+
+            default:
+                throw new IOException("Unsupported EDGE_WEIGHT_FORMAT " + format);
+        }
+    }
+
+    /**
+     * Returns a weight as the matrix keeps it. INT and SHORT matrices keep it exactly or reject it.
+     */
+    private double stored(double weight) {
+        return this.precision == FlatDistanceMatrix.Precision.FLOAT ? (float) weight : weight;
+    }
+
+    /**
+     * Returns the next byte without consuming it, or -1 at the end of the file.
+     */
+    private int peek() {
+        return this.position < this.limit ? this.buffer.get(this.position) : -1;
+    }
+
+    /**
+     * Skips spaces, tabs and line breaks.
+     */
+    private void skipWhitespace() {
+        while (this.position < this.limit && this.buffer.get(this.position) <= ' ') {
+            this.position++;
+        }
+    }
+
+    /**
+     * Reads a keyword, i.e. everything up to the next whitespace or colon, and skips the spaces after it.
+     */
+    private String readKeyword() {
+        int start = this.position;
+
+        while (this.position < this.limit) {
+            byte b = this.buffer.get(this.position);
+            if (b <= ' ' || b == ':')
+                break;
+            this.position++;
+        }
+
+        String keyword = asString(start, this.position);
+
+        while (this.position < this.limit && (peek() == ' ' || peek() == '\t')) {
+            this.position++;
+        }
+
+        return keyword;
+    }
+
+    /**
+     * Reads the rest of the current line, without the surrounding whitespace.
+     */
+    private String readLine() {
+        int start = this.position;
+
+        while (this.position < this.limit && this.buffer.get(this.position) != '\n') {
+            this.position++;
+        }
+
+        return asString(start, this.position).trim();
+    }
+
+    /**
+     * Returns the bytes [start, end) of the file as a string. Only used for the few words of the header.
+     */
+    private String asString(int start, int end) {
+        byte[] bytes = new byte[end - start];
+
+        for (int i = start; i < end; i++) {
+            bytes[i - start] = this.buffer.get(i);
+        }
+
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Reads a node id of a section, and returns the position of the node in the file.
+     */
+    private int readNodeId(int dimension) throws IOException {
+        long id = readLong();
+
+        if (id < 1 || id > dimension)
+            throw new IOException("Node " + id + " is out of range 1.." + dimension);
+
+        return (int) id - 1;
+    }
+
+    /**
+     * Reads a coordinate, which must be an integer, although it may be written as e.g. "82.0".
+     */
+    private int readIntCoordinate() throws IOException {
+        long value = readLong();
+
+        if (value != (int) value)
+            throw new IOException("Coordinate " + value + " does not fit in an int");
+
+        return (int) value;
+    }
+
+    /**
+     * Reads an integer, which may be written as e.g. "82.0". This is the fast path for the ids, coordinates and
+     * demands, which are integers in every real instance.
+     */
+    private long readLong() throws IOException {
+        skipWhitespace();
+
+        int start = this.position;
+        int pos = start;
+        boolean negative = false;
+
+        if (pos < this.limit && (this.buffer.get(pos) == '-' || this.buffer.get(pos) == '+')) {
+            negative = this.buffer.get(pos) == '-';
+            pos++;
+        }
+
+        int digitsStart = pos;
+        long value = 0;
+
+        while (pos < this.limit) {
+            byte b = this.buffer.get(pos);
+            if (b < '0' || b > '9')
+                break;
+            value = value * 10 + (b - '0');
+            pos++;
+        }
+
+        // Anything but plain digits (or too many of them) is left to the general parser.
+        if (pos == digitsStart || pos - digitsStart > 18 || (pos < this.limit && this.buffer.get(pos) > ' ')) {
+            double number = readNumber();
+
+            if (number != (long) number)
+                throw new IOException("Expected an integer at byte " + start + " but found " + number);
+
+            return (long) number;
+        }
+
+        this.position = pos;
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next number, straight from the mapped bytes. Integers, decimals and exponents (e.g. "1.5e3") are
+     * accepted. The number must end at a whitespace or at the end of the file.
+     */
+    private double readNumber() throws IOException {
+        skipWhitespace();
+
+        int start = this.position;
+        boolean negative = false;
+
+        if (peek() == '-' || peek() == '+') {
+            negative = peek() == '-';
+            this.position++;
+        }
+
+        // The digits of the number, as an integer, and the power of ten it must be multiplied by.
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+
+        for (int b = peek(); b >= '0' && b <= '9'; b = peek()) {
+            mantissa = mantissa * 10 + (b - '0');
+            digits++;
+            this.position++;
+        }
+
+        if (peek() == '.') {
+            this.position++;
+
+            for (int b = peek(); b >= '0' && b <= '9'; b = peek()) {
+                mantissa = mantissa * 10 + (b - '0');
+                exponent--;
+                digits++;
+                this.position++;
+            }
+        }
+
+        if (digits == 0)
+            throw new IOException("Expected a number at byte " + start);
+
+        if (peek() == 'e' || peek() == 'E') {
+            this.position++;
+            boolean negativeExponent = peek() == '-';
+            if (peek() == '-' || peek() == '+')
+                this.position++;
+
+            int value = 0;
+            int exponentDigits = 0;
+            for (int b = peek(); b >= '0' && b <= '9'; b = peek()) {
+                value = value * 10 + (b - '0');
+                exponentDigits++;
+                this.position++;
+            }
+
+            if (exponentDigits == 0 || exponentDigits > 4)
+                throw new IOException("Invalid exponent in the number at byte " + start);
+
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (peek() > ' ')
+            throw new IOException("Unexpected '" + (char) peek() + "' in the number at byte " + start);
+
+        // Too many digits for a long: let the JDK parse it exactly.
+        if (digits > 18)
+            return Double.parseDouble(asString(start, this.position));
+
+        double value = mantissa;
+        if (exponent < 0)
+            value /= Math.pow(10, -exponent);
+        else if (exponent > 0)
+            value *= Math.pow(10, exponent);
+
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,23 @@
+package component2;
+
+/**
+ * Every implementation of this interface keeps (or computes) the distances of every node of the VRP problem to each
+ * other. The search algorithms only read distances through this interface, so the underlying storage can be chosen
+ * according to the size of the instance.
+ */
+public interface DistanceMatrix {
+
+    /**
+     * Returns the distance between two nodes.
+     *
+     * @param from The id of the first node
+     * @param to The id of the second node
+     * @return The distance from node "from" to node "to"
+     */
+    double getDistance(int from, int to);
+
+    /**
+     * Returns the number of nodes (depot included) that this matrix covers.
+     */
+    int getSize();
+}
@@ -0,0 +1,269 @@
+package component2;
+
+import component1.Node;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Writes distance matrices to compact binary files, and maps them back into memory.
+ *
+ * A file has a 32 byte header followed by the cells of the lower triangle, in the layout of FlatDistanceMatrix, all
+ * in little-endian order:
+ *
+ *     offset  0: int  MAGIC
+ *     offset  4: int  VERSION
+ *     offset  8: int  the number of nodes
+ *     offset 12: int  the element type (the ordinal of FlatDistanceMatrix.Precision)
+ *     offset 16: long the fingerprint of the instance the matrix belongs to
+ *     offset 24: long the CRC32 checksum of the cells
+ *     offset 32: the cells, 4 bytes each for INT and FLOAT, 2 bytes each for SHORT
+ */
+public final class DistanceMatrixFile {
+
+    /**
+     * The first bytes of every matrix file ("VRPM").
+     */
+    private static final int MAGIC = 0x5652504D;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * The distance source of the matrices that are computed from the coordinates of the nodes, as rounded Euclidean
+     * distances.
+     */
+    public static final String EUCLIDEAN_SOURCE = "EUC_2D";
+
+    /**
+     * The files whose checksum has been verified by this process, with their size and modification time, so that a
+     * file is verified the first time it is mapped, and again only if it changes.
+     */
+    private static final Set<String> verifiedFiles = ConcurrentHashMap.newKeySet();
+
+    private DistanceMatrixFile() {}
+
+    /**
+     * Computes a fingerprint of an instance whose distances are the rounded Euclidean distances of its coordinates.
+     *
+     * @param nodes All the nodes of the problem.
+     * @return The fingerprint
+     */
+    public static long fingerprint(List<Node> nodes) {
+        return fingerprint(nodes, EUCLIDEAN_SOURCE);
+    }
+
+    /**
+     * Computes a fingerprint of an instance from the ids and the coordinates of its nodes and from where its distances
+     * come from, so that a matrix file is never used for another instance. Instances with the same coordinates but
+     * other distances, e.g. the explicit weights of a CVRPLIB file or road distances, must pass another distance
+     * source, such as the name of the weight type and a fingerprint of the weights.
+     *
+     * @param nodes All the nodes of the problem.
+     * @param distanceSource A description of where the distances come from, e.g. EUCLIDEAN_SOURCE
+     * @return The fingerprint
+     */
+    public static long fingerprint(List<Node> nodes, String distanceSource) {
+        // 64-bit FNV-1a over the distance source, the ids and the coordinates
+        long hash = 0xcbf29ce484222325L;
+
+        for (int i = 0; i < distanceSource.length(); i++) {
+            hash = (hash ^ distanceSource.charAt(i)) * 0x100000001b3L;
+        }
+
+        for (Node node: nodes) {
+            hash = (hash ^ node.getId()) * 0x100000001b3L;
+            hash = (hash ^ node.getX()) * 0x100000001b3L;
+            hash = (hash ^ node.getY()) * 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    /**
+     * Writes a matrix to a file. The file is written under a temporary name and then renamed, so that another process
+     * never maps a half-written file.
+     *
+     * @param matrix The matrix to be written
+     * @param fingerprint The fingerprint of the instance the matrix belongs to
+     * @param file The file to be written
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(FlatDistanceMatrix matrix, long fingerprint, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 checksum = new CRC32();
+
+            // Leave room for the header, which needs the checksum of the cells.
+            channel.position(HEADER_SIZE);
+
+            for (int to = 0; to < matrix.getSize(); to++) {
+                for (int from = 0; from <= to; from++) {
+                    if (buffer.remaining() < 4)
+                        flush(channel, buffer, checksum);
+
+                    double distance = matrix.getDistance(from, to);
+
+                    switch (matrix.getPrecision()) {
+                        case SHORT:
+                            buffer.putShort((short) distance);
+                            break;
+                        case FLOAT:
+                            buffer.putFloat((float) distance);
+                            break;
+                        default:
+                            buffer.putInt((int) distance);
+                            break;
+                    }
+                }
+            }
+            flush(channel, buffer, checksum);
+
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(matrix.getSize());
+            buffer.putInt(matrix.getPrecision().ordinal());
+            buffer.putLong(fingerprint);
+            buffer.putLong(checksum.getValue());
+            buffer.flip();
+
+            channel.position(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // The checksum was just computed from the cells, so the file does not need to be verified when it is mapped.
+        verifiedFiles.add(version(file));
+    }
+
+    /**
+     * Writes the buffered cells to the channel and adds them to the checksum.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        buffer.flip();
+
+        ByteBuffer cells = buffer.duplicate();
+        checksum.update(cells);
+
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        buffer.clear();
+    }
+
+    /**
+     * Maps a matrix file into memory. The checksum is verified the first time that this process maps the file, and
+     * again whenever the file changes, so that a corrupt file is detected before any of its distances is used.
+     *
+     * @param file The file to be mapped
+     * @param fingerprint The fingerprint of the instance the matrix must belong to
+     * @return MappedDistanceMatrix
+     * @throws IOException If the file cannot be read, is not a valid matrix file, or belongs to another instance.
+     */
+    public static MappedDistanceMatrix map(Path file, long fingerprint) throws IOException {
+        String version = version(file);
+        MappedDistanceMatrix matrix = map(file, fingerprint, !verifiedFiles.contains(version));
+
+        verifiedFiles.add(version);
+        return matrix;
+    }
+
+    /**
+     * Maps a matrix file into memory.
+     *
+     * @param file The file to be mapped
+     * @param fingerprint The fingerprint of the instance the matrix must belong to
+     * @param verifyChecksum If true, every cell is read once to verify the checksum. Otherwise only the header is
+     *                       checked, and the cells are read only when they are needed.
+     * @return MappedDistanceMatrix
+     * @throws IOException If the file cannot be read, is not a valid matrix file, or belongs to another instance.
+     */
+    public static MappedDistanceMatrix map(Path file, long fingerprint, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // keep reading until the header is complete
+            }
+            header.flip();
+
+            if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC)
+                throw new IOException(file + " is not a distance matrix file");
+
+            if (header.getInt(4) != VERSION)
+                throw new IOException(file + " has unsupported version " + header.getInt(4));
+
+            int size = header.getInt(8);
+            int type = header.getInt(12);
+
+            if (size < 0 || type < 0 || type >= FlatDistanceMatrix.Precision.values().length)
+                throw new IOException(file + " has a corrupt header");
+
+            FlatDistanceMatrix.Precision precision = FlatDistanceMatrix.Precision.values()[type];
+            long length = ((long) size * (size + 1) / 2) << MappedDistanceMatrix.elementShift(precision);
+
+            if (channel.size() != HEADER_SIZE + length)
+                throw new IOException(file + " is truncated");
+
+            if (header.getLong(16) != fingerprint)
+                throw new IOException(file + " belongs to another instance");
+
+            // Map the cells in chunks, since a single buffer cannot map more than 2 GB.
+            long chunkSize = 1L << MappedDistanceMatrix.CHUNK_BITS;
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((length + chunkSize - 1) / chunkSize)];
+            CRC32 checksum = new CRC32();
+
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = i * chunkSize;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + offset,
+                        Math.min(chunkSize, length - offset)).order(ByteOrder.LITTLE_ENDIAN);
+
+                if (verifyChecksum)
+                    checksum.update(chunks[i].duplicate());
+            }
+
+            if (verifyChecksum && checksum.getValue() != header.getLong(24))
+                throw new IOException(file + " is corrupt, its checksum does not match");
+
+            // The mapping stays valid after the channel is closed.
+            return new MappedDistanceMatrix(chunks, size, precision);
+        }
+    }
+
+    /**
+     * Returns the path, size and modification time of a file, which change whenever the file is replaced.
+     */
+    private static String version(Path file) throws IOException {
+        return file.toAbsolutePath().normalize() + ":" + Files.size(file) + ":" +
+                Files.getLastModifiedTime(file).toMillis();
+    }
+}
@@ -0,0 +1,217 @@
+package component2;
+
+import component1.Node;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A distance "matrix" that does not keep the O(n^2) distances in memory. Only the coordinates of the nodes are kept,
+ * in two primitive arrays, and the rounded Euclidean distance is computed when asked.
+ *
+ * The hot rows, e.g. the rows of the nodes of the routes that a local search keeps evaluating, are kept in a bounded
+ * cache with the CLOCK policy, an approximation of LRU: every slot has a reference bit that is set when its row is
+ * read, and a row is evicted when the clock hand finds its bit clear. Filling a row costs O(n), so a row is only
+ * admitted once it has missed ADMISSION_MISSES times since it was last cached, and the rows that are read only a few
+ * times are computed directly in O(1) without evicting anything. Lookups are volatile reads without locks or boxing,
+ * so the threads that read the oracle never wait for each other.
+ */
+public class EuclideanDistanceOracle implements DistanceMatrix {
+
+    /**
+     * The number of misses of a row after which it is admitted to the cache.
+     */
+    private static final int ADMISSION_MISSES = 32;
+
+    /**
+     * A cached row. It is never changed after it is published.
+     */
+    private static final class Row {
+
+        private final int node;
+
+        private final int[] distances;
+
+        Row(int node, int[] distances) {
+            this.node = node;
+            this.distances = distances;
+        }
+    }
+
+    /**
+     * The X-axis coordinate of every node, indexed by node id.
+     */
+    private final int[] xs;
+
+    /**
+     * The Y-axis coordinate of every node, indexed by node id.
+     */
+    private final int[] ys;
+
+    /**
+     * The cached rows, one slot per cached row, or null if no rows are cached.
+     */
+    private final AtomicReferenceArray<Row> rowCache;
+
+    /**
+     * The slot of the row of every node, indexed by node id. It may be stale, so the node of the row must be checked.
+     */
+    private final AtomicIntegerArray slotOf;
+
+    /**
+     * The reference bit of every slot, set when its row is read and cleared when the clock hand passes over it.
+     */
+    private final AtomicIntegerArray referenced;
+
+    /**
+     * The number of misses of the row of every node since it was last cached, indexed by node id.
+     */
+    private final AtomicIntegerArray misses;
+
+    /**
+     * The position of the clock hand. It only grows, the slot is taken modulo the number of slots.
+     */
+    private final AtomicInteger clockHand = new AtomicInteger();
+
+    /**
+     * The number of distance requests that were served from the cache.
+     */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /**
+     * The number of distance requests that were computed because their row was not cached.
+     */
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * Constructor
+     *
+     * @param nodes All the nodes of the problem. The id of every node must be its position in the list.
+     * @param cachedRows The maximum number of rows that can be kept in the cache, or 0 for none.
+     */
+    public EuclideanDistanceOracle(List<Node> nodes, int cachedRows) {
+        if (cachedRows < 0)
+            throw new IllegalArgumentException("The number of cached rows must not be negative: " + cachedRows);
+
+        this.xs = new int[nodes.size()];
+        this.ys = new int[nodes.size()];
+
+        for (Node node: nodes) {
+            this.xs[node.getId()] = node.getX();
+            this.ys[node.getId()] = node.getY();
+        }
+
+        int slots = Math.min(cachedRows, nodes.size());
+
+        if (slots > 0) {
+            this.rowCache = new AtomicReferenceArray<>(slots);
+            this.slotOf = new AtomicIntegerArray(nodes.size());
+            this.referenced = new AtomicIntegerArray(slots);
+            this.misses = new AtomicIntegerArray(nodes.size());
+        } else {
+            this.rowCache = null;
+            this.slotOf = null;
+            this.referenced = null;
+            this.misses = null;
+        }
+    }
+
+    /**
+     * Computes the rounded Euclidean distance of two nodes, the same way the flat matrix is filled.
+     */
+    private int computeDistance(int from, int to) {
+        return (int) FlatDistanceMatrix.euclidean(this.xs[from], this.ys[from], this.xs[to], this.ys[to]);
+    }
+
+    @Override
+    public double getDistance(int from, int to) {
+        if (this.rowCache == null)
+            return computeDistance(from, to);
+
+        int slot = this.slotOf.get(from);
+        Row row = this.rowCache.get(slot);
+
+        if (row != null && row.node == from) {
+            // Only write the bit if it is clear, so that the readers of a hot row do not keep writing its cache line.
+            if (this.referenced.get(slot) == 0)
+                this.referenced.lazySet(slot, 1);
+
+            this.cacheHits.increment();
+            return row.distances[to];
+        }
+
+        this.cacheMisses.increment();
+
+        if (this.misses.incrementAndGet(from) >= ADMISSION_MISSES)
+            return admit(from)[to];
+
+        return computeDistance(from, to);
+    }
+
+    /**
+     * Computes the row of a node and keeps it in the cache, unless it is already there, so that its distances are
+     * read instead of computed from now on. Rows are also cached on their own once they are read often enough; this
+     * is for a consumer that knows in advance that it will read a row many times.
+     *
+     * @param from The id of the node
+     */
+    public void cacheRow(int from) {
+        if (this.rowCache == null)
+            return;
+
+        Row row = this.rowCache.get(this.slotOf.get(from));
+
+        if (row == null || row.node != from)
+            admit(from);
+    }
+
+    /**
+     * Computes the row of a node and puts it in the slot of the first row that the clock hand finds not referenced
+     * since it last passed. Threads that admit rows at the same time take different slots, and a row that two threads
+     * admit at the same time is cached twice until one copy is evicted, which is harmless.
+     *
+     * @return The distances of the row
+     */
+    private int[] admit(int from) {
+        int[] distances = new int[this.xs.length];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = computeDistance(from, i);
+        }
+
+        int slots = this.rowCache.length();
+        int slot;
+
+        // Every pass over a referenced slot clears its bit, so a victim is soon found.
+        while (true) {
+            slot = (this.clockHand.getAndIncrement() & Integer.MAX_VALUE) % slots;
+
+            if (this.referenced.get(slot) == 0)
+                break;
+
+            this.referenced.set(slot, 0);
+        }
+
+        this.misses.set(from, 0);
+        this.referenced.set(slot, 1);
+        this.rowCache.set(slot, new Row(from, distances));
+        this.slotOf.set(from, slot);
+
+        return distances;
+    }
+
+    @Override
+    public int getSize() {
+        return this.xs.length;
+    }
+
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    public long getCacheMisses() {
+        return this.cacheMisses.sum();
+    }
+}
@@ -0,0 +1,253 @@
+package component2;
+
+/**
+ * A symmetric distance matrix that is kept in a single contiguous primitive array.
+ *
+ * Since the distance from i to j is the same as the distance from j to i, only the lower triangle (diagonal included)
+ * is stored, row after row. The cell (i, j) with i <= j lives in position j * (j + 1) / 2 + i of the array.
+ * Depending on the chosen precision, the values are kept as int, short or float.
+ */
+public abstract class FlatDistanceMatrix implements DistanceMatrix {
+
+    /**
+     * The type of the values that are kept in the matrix.
+     */
+    public enum Precision {
+
+        /**
+         * 4 bytes per cell, integer distances.
+         */
+        INT,
+
+        /**
+         * 2 bytes per cell, integer distances up to Short.MAX_VALUE.
+         */
+        SHORT,
+
+        /**
+         * 4 bytes per cell. The distances given to setDistance are kept with their fraction (to float precision), e.g.
+         * the explicit weights of an instance file, while the distances computed from coordinates are rounded like in
+         * the other backends.
+         */
+        FLOAT
+    }
+
+    /**
+     * The number of nodes covered by the matrix.
+     */
+    final int size;
+
+    /**
+     * Constructor
+     *
+     * @param size The number of nodes covered by the matrix.
+     */
+    FlatDistanceMatrix(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Creates an empty (all zeros) matrix.
+     *
+     * @param size The number of nodes covered by the matrix.
+     * @param precision The type of the values to be stored.
+     * @return FlatDistanceMatrix
+     */
+    public static FlatDistanceMatrix create(int size, Precision precision) {
+        long cells = (long) size * (size + 1) / 2;
+
+        if (size < 0 || cells > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Cannot keep a flat distance matrix for " + size + " nodes");
+
+        switch (precision) {
+            case SHORT:
+                return new ShortMatrix(size, (int) cells);
+            case FLOAT:
+                return new FloatMatrix(size, (int) cells);
+            default:
+                return new IntMatrix(size, (int) cells);
+        }
+    }
+
+    /**
+     * Returns the position of cell (from, to) in the flat array.
+     */
+    static int index(int from, int to) {
+        return from <= to ? (int) ((long) to * (to + 1) / 2) + from : (int) ((long) from * (from + 1) / 2) + to;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the precision of the stored values.
+     */
+    public abstract Precision getPrecision();
+
+    /**
+     * Stores the distance between two nodes. Since the matrix is symmetric, this also sets the distance from "to" to
+     * "from".
+     *
+     * @param from The id of the first node
+     * @param to The id of the second node
+     * @param distance The distance between them
+     */
+    public abstract void setDistance(int from, int to, double distance);
+
+    /**
+     * Fills a whole row of the lower triangle, i.e. the distances of node "row" to every node with id up to "row", with
+     * the rounded Euclidean distances of the given coordinates.
+     *
+     * @param row The row to fill
+     * @param xs The X-axis coordinate of every node, indexed by node id
+     * @param ys The Y-axis coordinate of every node, indexed by node id
+     */
+    abstract void fillRow(int row, int[] xs, int[] ys);
+
+    /**
+     * Computes the rounded Euclidean distance of two points. The result is exactly the same as
+     * Math.round(Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2))) for integer coordinates. The differences are taken in
+     * long, so coordinates more than 2^31 apart do not overflow, and squared in double, like Math.pow does.
+     */
+    public static long euclidean(int x1, int y1, int x2, int y2) {
+        double dx = (long) x1 - x2;
+        double dy = (long) y1 - y2;
+
+        return Math.round(Math.sqrt(dx * dx + dy * dy));
+    }
+
+    /**
+     * Integer backend.
+     */
+    private static final class IntMatrix extends FlatDistanceMatrix {
+
+        private final int[] cells;
+
+        IntMatrix(int size, int cells) {
+            super(size);
+            this.cells = new int[cells];
+        }
+
+        @Override
+        public double getDistance(int from, int to) {
+            return this.cells[index(from, to)];
+        }
+
+        @Override
+        public void setDistance(int from, int to, double distance) {
+            if (distance != (int) distance)
+                throw new IllegalArgumentException("Distance " + distance + " does not fit in an int matrix");
+
+            this.cells[index(from, to)] = (int) distance;
+        }
+
+        @Override
+        void fillRow(int row, int[] xs, int[] ys) {
+            int base = index(0, row);
+            int x = xs[row];
+            int y = ys[row];
+
+            for (int j = 0; j <= row; j++) {
+                long distance = euclidean(x, y, xs[j], ys[j]);
+
+                if (distance > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException("Distance " + distance + " does not fit in an int matrix");
+
+                this.cells[base + j] = (int) distance;
+            }
+        }
+
+        @Override
+        public Precision getPrecision() {
+            return Precision.INT;
+        }
+    }
+
+    /**
+     * Short backend.
+     */
+    private static final class ShortMatrix extends FlatDistanceMatrix {
+
+        private final short[] cells;
+
+        ShortMatrix(int size, int cells) {
+            super(size);
+            this.cells = new short[cells];
+        }
+
+        @Override
+        public double getDistance(int from, int to) {
+            return this.cells[index(from, to)];
+        }
+
+        @Override
+        public void setDistance(int from, int to, double distance) {
+            if (distance != (short) distance)
+                throw new IllegalArgumentException("Distance " + distance + " does not fit in a short matrix");
+
+            this.cells[index(from, to)] = (short) distance;
+        }
+
+        @Override
+        void fillRow(int row, int[] xs, int[] ys) {
+            int base = index(0, row);
+            int x = xs[row];
+            int y = ys[row];
+
+            for (int j = 0; j <= row; j++) {
+                long distance = euclidean(x, y, xs[j], ys[j]);
+
+                if (distance > Short.MAX_VALUE)
+                    throw new IllegalArgumentException("Distance " + distance + " does not fit in a short matrix");
+
+                this.cells[base + j] = (short) distance;
+            }
+        }
+
+        @Override
+        public Precision getPrecision() {
+            return Precision.SHORT;
+        }
+    }
+
+    /**
+     * Float backend.
+     */
+    private static final class FloatMatrix extends FlatDistanceMatrix {
+
+        private final float[] cells;
+
+        FloatMatrix(int size, int cells) {
+            super(size);
+            this.cells = new float[cells];
+        }
+
+        @Override
+        public double getDistance(int from, int to) {
+            return this.cells[index(from, to)];
+        }
+
+        @Override
+        public void setDistance(int from, int to, double distance) {
+            this.cells[index(from, to)] = (float) distance;
+        }
+
+        @Override
+        void fillRow(int row, int[] xs, int[] ys) {
+            int base = index(0, row);
+            int x = xs[row];
+            int y = ys[row];
+
+            for (int j = 0; j <= row; j++) {
+                this.cells[base + j] = euclidean(x, y, xs[j], ys[j]);
+            }
+        }
+
+        @Override
+        public Precision getPrecision() {
+            return Precision.FLOAT;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package component2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Writes a large random EUC_2D instance (by default about 100 MB) to a temporary file and prints the time needed to
+ * load it with the CvrplibLoader.
+ */
+class LoaderTimingReport {
+
+    public static void main(String[] args) throws IOException {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 3000000;
+        Path file = Files.createTempFile("vrp", ".vrp");
+
+        try {
+            write(file, customers);
+            System.out.printf("file=%.1f MB customers=%d%n", Files.size(file) / 1e6, customers);
+
+            CvrplibLoader loader = new CvrplibLoader();
+
+            // The first runs warm up the parser, then keep the best of three runs.
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                long start = System.nanoTime();
+                ProblemInitializer instance = loader.load(file);
+                long time = System.nanoTime() - start;
+
+                if (instance.getCustomers().size() != customers + 1)
+                    throw new IllegalStateException("Loaded " + instance.getCustomers().size() + " nodes");
+
+                if (run >= 2)
+                    best = Math.min(best, time);
+            }
+
+            System.out.printf("load time=%.1f ms%n", best / 1e6);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Writes a random instance with coordinates on a 100000x100000 grid.
+     */
+    private static void write(Path file, int customers) throws IOException {
+        Random ran = new Random(61092);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write("NAME : random\nTYPE : CVRP\nDIMENSION : " + (customers + 1) + "\n");
+            writer.write("EDGE_WEIGHT_TYPE : EUC_2D\nCAPACITY : 50\nNODE_COORD_SECTION\n");
+
+            for (int i = 1; i <= customers + 1; i++) {
+                writer.write(" " + i + " " + ran.nextInt(100000) + " " + ran.nextInt(100000) + "\n");
+            }
+
+            writer.write("DEMAND_SECTION\n");
+            for (int i = 1; i <= customers + 1; i++) {
+                writer.write(i + " " + (i == 1 ? 0 : 4 + ran.nextInt(7)) + "\n");
+            }
+
+            writer.write("DEPOT_SECTION\n 1\n -1\nEOF\n");
+        }
+    }
+}
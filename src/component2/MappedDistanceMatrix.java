@@ -0,0 +1,89 @@
+package component2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A distance matrix that is read straight from a memory-mapped matrix file (see DistanceMatrixFile), without copying
+ * it into the heap. The cells have the same lower triangle layout and element type as the FlatDistanceMatrix that was
+ * written, so the distances are exactly the same.
+ *
+ * The pages of the file are shared by every process that maps it, and are only read when a distance is asked for.
+ * Reading does not change the state of the buffers, so the matrix can be used by many threads at once.
+ */
+public class MappedDistanceMatrix implements DistanceMatrix {
+
+    /**
+     * The number of bits of the offsets within a chunk. A buffer cannot map more than 2 GB, so the cells are split
+     * into chunks of 1 GB. Every element size divides it, so no cell spans two chunks.
+     */
+    static final int CHUNK_BITS = 30;
+
+    /**
+     * The mapped cells, in chunks of 1 << CHUNK_BITS bytes.
+     */
+    private final ByteBuffer[] chunks;
+
+    /**
+     * The number of nodes covered by the matrix.
+     */
+    private final int size;
+
+    /**
+     * The type of the stored values.
+     */
+    private final FlatDistanceMatrix.Precision precision;
+
+    /**
+     * log2 of the size of every cell in bytes.
+     */
+    private final int elementShift;
+
+    /**
+     * Constructor
+     *
+     * @param chunks The mapped cells, in chunks of 1 << CHUNK_BITS bytes, in little-endian order.
+     * @param size The number of nodes covered by the matrix.
+     * @param precision The type of the stored values.
+     */
+    MappedDistanceMatrix(ByteBuffer[] chunks, int size, FlatDistanceMatrix.Precision precision) {
+        this.chunks = chunks;
+        this.size = size;
+        this.precision = precision;
+        this.elementShift = elementShift(precision);
+    }
+
+    /**
+     * Returns log2 of the size in bytes of a cell of the given precision.
+     */
+    static int elementShift(FlatDistanceMatrix.Precision precision) {
+        return precision == FlatDistanceMatrix.Precision.SHORT ? 1 : 2;
+    }
+
+    @Override
+    public double getDistance(int from, int to) {
+        long offset = (long) FlatDistanceMatrix.index(from, to) << this.elementShift;
+        ByteBuffer chunk = this.chunks[(int) (offset >>> CHUNK_BITS)];
+        int position = (int) (offset & ((1 << CHUNK_BITS) - 1));
+
+        switch (this.precision) {
+            case SHORT:
+                return chunk.getShort(position);
+            case FLOAT:
+                return chunk.getFloat(position);
+            default:
+                return chunk.getInt(position);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Returns the precision of the stored values.
+     */
+    public FlatDistanceMatrix.Precision getPrecision() {
+        return this.precision;
+    }
+}
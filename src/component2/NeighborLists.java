@@ -0,0 +1,85 @@
+package component2;
+
+import java.util.stream.IntStream;
+
+/**
+ * The k nearest neighbors of every node of the problem, kept in a single primitive array. The neighbors of node i are
+ * stored in positions [i * k, (i + 1) * k), sorted by increasing distance (ties are broken by the smaller id).
+ *
+ * These lists are used by the "granular" neighborhoods of the local search algorithms, where a customer is only
+ * considered for insertion next to one of its nearest neighbors.
+ */
+public class NeighborLists {
+
+    /**
+     * The number of neighbors kept for every node.
+     */
+    private final int k;
+
+    /**
+     * The neighbors of every node.
+     */
+    private final int[] neighbors;
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix of the problem
+     * @param k The number of neighbors to keep for every node. It is capped to the number of the other nodes.
+     */
+    public NeighborLists(final DistanceMatrix distanceMatrix, int k) {
+        final int size = distanceMatrix.getSize();
+
+        this.k = Math.max(0, Math.min(k, size - 1));
+        this.neighbors = new int[size * this.k];
+
+        // Every node is independent of the others, so the lists can be built in parallel.
+        IntStream.range(0, size).parallel().forEach(node -> this.findNearest(distanceMatrix, node));
+    }
+
+    /**
+     * Finds the k nearest neighbors of a node by keeping the best k found so far sorted.
+     */
+    private void findNearest(DistanceMatrix distanceMatrix, int node) {
+        int offset = node * this.k;
+        double[] distances = new double[this.k];
+        int found = 0;
+
+        for (int other = 0; other < distanceMatrix.getSize(); other++) {
+            if (other == node)
+                continue;
+
+            double distance = distanceMatrix.getDistance(node, other);
+
+            // If the list is full and this node is not closer than the farthest one, ignore it.
+            if (found == this.k && (this.k == 0 || distance >= distances[this.k - 1]))
+                continue;
+
+            // Shift every farther neighbor one position to the right and insert the new one.
+            int position = found < this.k ? found++ : this.k - 1;
+            while (position > 0 && distances[position - 1] > distance) {
+                distances[position] = distances[position - 1];
+                this.neighbors[offset + position] = this.neighbors[offset + position - 1];
+                position--;
+            }
+
+            distances[position] = distance;
+            this.neighbors[offset + position] = other;
+        }
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * Returns the neighbor of a node with the given rank.
+     *
+     * @param node The id of the node
+     * @param rank 0 for the nearest neighbor, 1 for the second nearest etc.
+     * @return The id of the neighbor
+     */
+    public int getNeighbor(int node, int rank) {
+        return this.neighbors[node * this.k + rank];
+    }
+}
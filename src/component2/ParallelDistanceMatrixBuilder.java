@@ -0,0 +1,123 @@
+package component2;
+
+import component1.Node;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class builds a flat distance matrix using several threads. The rows of the lower triangle are split into
+ * ranges of (roughly) equal work, which are filled in parallel by a ForkJoinPool. Every symmetric pair is computed only
+ * once and the result is exactly the same as the one of the sequential construction.
+ */
+public class ParallelDistanceMatrixBuilder {
+
+    /**
+     * A range of rows will not be split any further if it contains fewer cells than this.
+     */
+    private static final long CELLS_PER_TASK = 1 << 16;
+
+    /**
+     * The number of threads that will be used.
+     */
+    private final int parallelism;
+
+    /**
+     * Constructor
+     *
+     * @param parallelism The number of threads that will be used.
+     */
+    public ParallelDistanceMatrixBuilder(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Builds the distance matrix of the given nodes.
+     *
+     * @param nodes All the nodes of the problem. The id of every node must be its position in the list.
+     * @param precision The type of the values kept in the distance matrix.
+     * @return FlatDistanceMatrix
+     */
+    public FlatDistanceMatrix build(List<Node> nodes, FlatDistanceMatrix.Precision precision) {
+        int[] xs = new int[nodes.size()];
+        int[] ys = new int[nodes.size()];
+
+        for (Node node: nodes) {
+            xs[node.getId()] = node.getX();
+            ys[node.getId()] = node.getY();
+        }
+
+        FlatDistanceMatrix matrix = FlatDistanceMatrix.create(nodes.size(), precision);
+
+        // A single thread does not need the pool at all.
+        if (this.parallelism == 1) {
+            for (int i = 0; i < xs.length; i++) {
+                matrix.fillRow(i, xs, ys);
+            }
+            return matrix;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        try {
+            pool.invoke(new RowRangeTask(matrix, xs, ys, 0, xs.length));
+        } finally {
+            pool.shutdown();
+        }
+
+        return matrix;
+    }
+
+    /**
+     * Fills the rows [from, to) of the matrix, splitting the range in two halves of equal work while it is too big.
+     */
+    private static final class RowRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FlatDistanceMatrix matrix;
+
+        private final int[] xs;
+
+        private final int[] ys;
+
+        private final int from;
+
+        private final int to;
+
+        RowRangeTask(FlatDistanceMatrix matrix, int[] xs, int[] ys, int from, int to) {
+            this.matrix = matrix;
+            this.xs = xs;
+            this.ys = ys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            // Row i holds i + 1 cells, so the work of the range grows with the square of the row index.
+            long cells = ((long) this.to * (this.to + 1) - (long) this.from * (this.from + 1)) / 2;
+
+            if (cells <= CELLS_PER_TASK || this.to - this.from < 2) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.matrix.fillRow(i, this.xs, this.ys);
+                }
+                return;
+            }
+
+            // The row that splits the range into two parts with the same number of cells.
+            int middle = (int) Math.sqrt(((double) this.from * this.from + (double) this.to * this.to) / 2);
+            middle = Math.max(this.from + 1, Math.min(this.to - 1, middle));
+
+            invokeAll(new RowRangeTask(this.matrix, this.xs, this.ys, this.from, middle),
+                    new RowRangeTask(this.matrix, this.xs, this.ys, middle, this.to));
+        }
+    }
+}
@@ -3,6 +3,10 @@ package component2;
 import component1.Node;
 import component1.Route;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -26,14 +30,19 @@ public class ProblemInitializer {
     private List<Node> customers;
 
     /**
-     * All the available vehicles.
+     * The number of available vehicles.
      */
-    private List<Route> vehicles;
+    private int numberOfVehicles;
 
     /**
-     * A 2-D matrix that will keep the distances of every node to each other.
+     * The capacity of every vehicle.
      */
-    private double[][] distanceMatrix;
+    private int vehicleCapacity;
+
+    /**
+     * The matrix that will keep the distances of every node to each other.
+     */
+    private DistanceMatrix distanceMatrix;
 
     /**
      * The total number of customers.
@@ -44,12 +53,22 @@ public class ProblemInitializer {
         return new ArrayList<>(this.customers);
     }
 
-    public double[][] getDistanceMatrix() {
+    public DistanceMatrix getDistanceMatrix() {
         return this.distanceMatrix;
     }
 
+    /**
+     * Returns the available vehicles. Every call returns new, empty routes, so that the same instance can be solved
+     * more than once without the solutions sharing any route.
+     */
     public List<Route> getVehicles() {
-        return new ArrayList<>(this.vehicles);
+        List<Route> vehicles = new ArrayList<>();
+
+        for (int i = 0; i < this.numberOfVehicles; i++) {
+            vehicles.add(new Route(this.vehicleCapacity));
+        }
+
+        return vehicles;
     }
 
     /**
@@ -59,15 +78,106 @@ public class ProblemInitializer {
      * @param numOfNodes The number of customer that we will need for the VRP.
      */
     public ProblemInitializer(int seed, int numOfNodes, int numOfVehicles) {
+        this(seed, numOfNodes, numOfVehicles, FlatDistanceMatrix.Precision.INT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param seed The seed for the random generator.
+     * @param numOfNodes The number of customer that we will need for the VRP.
+     * @param numOfVehicles The number of available vehicles.
+     * @param precision The type of the values kept in the distance matrix.
+     */
+    public ProblemInitializer(int seed, int numOfNodes, int numOfVehicles, FlatDistanceMatrix.Precision precision) {
+        this(seed, numOfNodes, numOfVehicles, precision, 1);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param seed The seed for the random generator.
+     * @param numOfNodes The number of customer that we will need for the VRP.
+     * @param numOfVehicles The number of available vehicles.
+     * @param precision The type of the values kept in the distance matrix.
+     * @param parallelism The number of threads that will build the distance matrix.
+     */
+    public ProblemInitializer(int seed, int numOfNodes, int numOfVehicles, FlatDistanceMatrix.Precision precision,
+                              int parallelism) {
+        this(seed, numOfNodes, numOfVehicles, precision, parallelism, null);
+    }
+
+    /**
+     * Constructor that keeps the distance matrix in a file. The first time, the matrix is computed and written to the
+     * file. On later runs (or by other processes) the file is memory-mapped instead, and the distances are read
+     * straight from it, so the matrix is not computed again.
+     *
+     * @param seed The seed for the random generator.
+     * @param numOfNodes The number of customer that we will need for the VRP.
+     * @param numOfVehicles The number of available vehicles.
+     * @param precision The type of the values kept in the distance matrix.
+     * @param parallelism The number of threads that will build the distance matrix.
+     * @param matrixFile The file of the distance matrix, or null to only keep the matrix in memory.
+     */
+    public ProblemInitializer(int seed, int numOfNodes, int numOfVehicles, FlatDistanceMatrix.Precision precision,
+                              int parallelism, Path matrixFile) {
+        this.ran = new Random(seed);
+        this.customers = new ArrayList<>();
+        this.numberOfNodes = numOfNodes + 1;
+
+        this.initializeCustomers();
+        this.initializeVehicles(numOfVehicles);
+
+        if (matrixFile == null)
+            this.createDistanceMatrix(precision, parallelism);
+        else
+            this.loadDistanceMatrix(precision, parallelism, matrixFile);
+    }
+
+    /**
+     * Creates a random instance for very large problems. Instead of precomputing the O(n^2) distance matrix, the
+     * distances are computed on demand from the coordinates of the nodes, and only the hot rows are kept in memory, in
+     * the bounded cache of the EuclideanDistanceOracle.
+     *
+     * @param seed The seed for the random generator.
+     * @param numOfNodes The number of customer that we will need for the VRP.
+     * @param numOfVehicles The number of available vehicles.
+     * @param cachedRows The number of distance rows that can be cached, or 0 for none.
+     * @return ProblemInitializer, whose distance matrix is an EuclideanDistanceOracle.
+     */
+    public static ProblemInitializer withDistanceOracle(int seed, int numOfNodes, int numOfVehicles, int cachedRows) {
+        return new ProblemInitializer(seed, numOfNodes, numOfVehicles, cachedRows);
+    }
+
+    /**
+     * Constructor of withDistanceOracle.
+     */
+    private ProblemInitializer(int seed, int numOfNodes, int numOfVehicles, int cachedRows) {
         this.ran = new Random(seed);
         this.customers = new ArrayList<>();
-        this.vehicles = new ArrayList<>();
         this.numberOfNodes = numOfNodes + 1;
-        this.distanceMatrix = new double[this.numberOfNodes][this.numberOfNodes];
 
         this.initializeCustomers();
         this.initializeVehicles(numOfVehicles);
-        this.createDistanceMatrix();
+        this.distanceMatrix = new EuclideanDistanceOracle(this.customers, cachedRows);
+    }
+
+    /**
+     * Constructor for an instance that is already known, e.g. one that was read from a file.
+     *
+     * @param customers All the nodes of the problem. Position 0 must contain the depot, and the id of every node must
+     *                  be its position in the list.
+     * @param numOfVehicles The number of available vehicles.
+     * @param vehicleCapacity The capacity of every vehicle.
+     * @param distanceMatrix The distances of every node to each other.
+     */
+    public ProblemInitializer(List<Node> customers, int numOfVehicles, int vehicleCapacity,
+                              DistanceMatrix distanceMatrix) {
+        this.customers = new ArrayList<>(customers);
+        this.numberOfNodes = customers.size();
+        this.numberOfVehicles = numOfVehicles;
+        this.vehicleCapacity = vehicleCapacity;
+        this.distanceMatrix = distanceMatrix;
     }
 
     /**
@@ -98,24 +208,52 @@ public class ProblemInitializer {
      * A helper function that initializes the vehicle list.
      */
     private void initializeVehicles(int numOfVehicles) {
-        for (int i = 0; i < numOfVehicles; i++) {
-            this.vehicles.add(new Route(50));
-        }
+        this.numberOfVehicles = numOfVehicles;
+        this.vehicleCapacity = 50;
     }
 
     /**
      * A helper function that creates the distance matrix.
+     * Distances are symmetric, so every pair is computed only once.
+     *
+     * @param precision The type of the values kept in the distance matrix.
+     * @param parallelism The number of threads that will build the distance matrix.
      */
-    private void createDistanceMatrix() {
-        for (int i = 0; i < this.numberOfNodes; i++) {
-            Node n1 = this.customers.get(i);
+    private void createDistanceMatrix(FlatDistanceMatrix.Precision precision, int parallelism) {
+        this.distanceMatrix = new ParallelDistanceMatrixBuilder(parallelism).build(this.customers, precision);
+    }
+
+    /**
+     * A helper function that maps the distance matrix from a file, or creates it and writes it to the file if the
+     * file does not exist yet, belongs to another instance or precision, or is corrupt. The checksum of the file is
+     * verified the first time this process maps it.
+     *
+     * @param precision The type of the values kept in the distance matrix.
+     * @param parallelism The number of threads that will build the distance matrix.
+     * @param matrixFile The file of the distance matrix.
+     */
+    private void loadDistanceMatrix(FlatDistanceMatrix.Precision precision, int parallelism, Path matrixFile) {
+        long fingerprint = DistanceMatrixFile.fingerprint(this.customers);
 
-            for (int j = 0; j < this.numberOfNodes; j++) {
-                Node n2 = this.customers.get(j);
+        if (Files.exists(matrixFile)) {
+            try {
+                MappedDistanceMatrix matrix = DistanceMatrixFile.map(matrixFile, fingerprint);
 
-                this.distanceMatrix[i][j] = Math.round(Math.sqrt(Math.pow(n1.getX() - n2.getX(), 2) +
-                        Math.pow(n1.getY() - n2.getY(), 2)));
+                if (matrix.getPrecision() == precision) {
+                    this.distanceMatrix = matrix;
+                    return;
+                }
+            } catch (IOException e) {
+                // Not a usable matrix file: compute the matrix again and replace the file below.
             }
         }
+
+        this.createDistanceMatrix(precision, parallelism);
+
+        try {
+            DistanceMatrixFile.write((FlatDistanceMatrix) this.distanceMatrix, fingerprint, matrixFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the distance matrix to " + matrixFile, e);
+        }
     }
 }
@@ -0,0 +1,86 @@
+package component2;
+
+import component1.Node;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Prints the time needed to build the distance matrix for a few instance sizes and every thread count, up to the
+ * number of available cores, along with the speedup over the single thread construction. Then prints the time needed
+ * to map the same matrices back from a matrix file.
+ */
+class StartupTimingReport {
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {1000, 5000, 20000};
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (int size: sizes) {
+            // The customers of the instance. The matrix itself is built below, so do not build it here.
+            List<Node> nodes = ProblemInitializer.withDistanceOracle(61092, size, 1, 0).getCustomers();
+
+            // The single thread construction, which every other thread count is compared against.
+            FlatDistanceMatrix reference = null;
+            long referenceTime = 0;
+
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                ParallelDistanceMatrixBuilder builder = new ParallelDistanceMatrixBuilder(threads);
+
+                // Warm up once, then keep the best of three runs.
+                FlatDistanceMatrix matrix = builder.build(nodes, FlatDistanceMatrix.Precision.INT);
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < 3; run++) {
+                    long start = System.nanoTime();
+                    matrix = builder.build(nodes, FlatDistanceMatrix.Precision.INT);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+
+                if (reference == null) {
+                    reference = matrix;
+                    referenceTime = best;
+                } else if (!sameDistances(reference, matrix)) {
+                    throw new IllegalStateException("Parallel construction with " + threads + " threads differs");
+                }
+
+                System.out.printf("customers=%d threads=%d time=%.1f ms speedup=%.2fx%n",
+                        size, threads, best / 1e6, (double) referenceTime / best);
+            }
+
+            // Write the matrix once, then map it back like a later run would.
+            Path file = Files.createTempFile("matrix", ".bin");
+            try {
+                long fingerprint = DistanceMatrixFile.fingerprint(nodes);
+                DistanceMatrixFile.write(reference, fingerprint, file);
+
+                long start = System.nanoTime();
+                MappedDistanceMatrix mapped = DistanceMatrixFile.map(file, fingerprint, false);
+                long mapTime = System.nanoTime() - start;
+
+                if (!sameDistances(reference, mapped))
+                    throw new IllegalStateException("The mapped matrix differs");
+
+                System.out.printf("customers=%d mapped from file time=%.3f ms speedup=%.0fx%n",
+                        size, mapTime / 1e6, (double) referenceTime / mapTime);
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Checks that two matrices hold exactly the same distances.
+     */
+    private static boolean sameDistances(DistanceMatrix m1, DistanceMatrix m2) {
+        for (int i = 0; i < m1.getSize(); i++) {
+            for (int j = 0; j <= i; j++) {
+                if (Double.doubleToRawLongBits(m1.getDistance(i, j)) != Double.doubleToRawLongBits(m2.getDistance(i, j)))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -17,10 +17,10 @@ class TestComponent2 {
         System.out.println(initializer.getVehicles());
 
         // Print distance matrix
-        double[][] distanceMatrix = initializer.getDistanceMatrix();
+        DistanceMatrix distanceMatrix = initializer.getDistanceMatrix();
         for (int i = 0; i < customers + 1; i++) {
             for (int j = 0; j < customers + 1; j++) {
-                System.out.print(distanceMatrix[i][j] + " \t");
+                System.out.print(distanceMatrix.getDistance(i, j) + " \t");
             }
             System.out.println();
         }
@@ -0,0 +1,20 @@
+package component3;
+
+import benchmark.BenchmarkRunner;
+import component2.ProblemInitializer;
+
+/**
+ * Benchmarks the greedy construction of a solution, with and without the spatial index, and the savings construction.
+ */
+class GreedyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        for (int size: BenchmarkRunner.sizes(args)) {
+            final ProblemInitializer initializer = new ProblemInitializer(61092, size, size);
+
+            BenchmarkRunner.run("GreedyVRP.findSolution", size, () -> new GreedyVRP(initializer).findSolution());
+            BenchmarkRunner.run("GreedyVRP.findSolution (grid)", size, () -> new GreedyVRP(initializer, true).findSolution());
+            BenchmarkRunner.run("SavingsVRP.findSolution", size, () -> new SavingsVRP(initializer).findSolution());
+        }
+    }
+}
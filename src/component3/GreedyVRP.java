@@ -3,6 +3,7 @@ package component3;
 import component1.Node;
 import component1.Route;
 import component1.Solution;
+import component2.DistanceMatrix;
 import component2.ProblemInitializer;
 
 import java.util.List;
@@ -25,19 +26,52 @@ public class GreedyVRP {
     /**
      * The distance matrix for the customers
      */
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
+
+    /**
+     * If true, the nearest customer is found through a spatial grid over the coordinates of the customers, instead of
+     * scanning all of them. This requires the distances to be the rounded Euclidean distances of the coordinates.
+     */
+    private boolean useSpatialIndex;
 
     /**
      * Constructor
      */
     public GreedyVRP() {
-        ProblemInitializer initializer = new ProblemInitializer(61092, 30, 10);
+        this(new ProblemInitializer(61092, 30, 10));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param initializer The instance of the problem to be solved.
+     */
+    public GreedyVRP(ProblemInitializer initializer) {
+        this(initializer, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param initializer The instance of the problem to be solved.
+     * @param useSpatialIndex Whether to use a spatial grid to find the nearest customer. It gives exactly the same
+     *                        solution as the linear scan, but scales to much larger instances. Only instances whose
+     *                        distances are the rounded Euclidean distances of the coordinates can use it.
+     * @throws IllegalArgumentException if the spatial index is used with distances that are not computed from the
+     *                                  coordinates, e.g. the explicit weights of a CVRPLIB file.
+     */
+    public GreedyVRP(ProblemInitializer initializer, boolean useSpatialIndex) {
         this.customers = initializer.getCustomers();
         this.vehicles = initializer.getVehicles();
         this.distanceMatrix = initializer.getDistanceMatrix();
+        this.useSpatialIndex = useSpatialIndex;
+
+        if (useSpatialIndex && !SpatialGrid.isEuclidean(this.customers, this.distanceMatrix))
+            throw new IllegalArgumentException("The spatial index needs the distances to be the rounded Euclidean " +
+                    "distances of the coordinates");
     }
 
-    public double[][] getDistanceMatrix() {
+    public DistanceMatrix getDistanceMatrix() {
         return distanceMatrix;
     }
 
@@ -53,8 +87,17 @@ public class GreedyVRP {
         // Fetch the depot node.
         Node depot = this.customers.remove(0);
 
+        // The spatial index over the unserved customers, if we use one.
+        SpatialGrid grid = this.useSpatialIndex ? new SpatialGrid(this.customers) : null;
+
+        // The number of customers that are not served yet.
+        int unserved = this.customers.size();
+
+        // The position of the next available vehicle. Vehicles are not removed from the list, to avoid shifting it.
+        int nextVehicle = 0;
+
         // Fetch the first available vehicle
-        Route currentVehicle = this.vehicles.remove(0);
+        Route currentVehicle = this.vehicles.get(nextVehicle++);
 
         // Add the depot to the vehicle.
         currentVehicle.addNodeToRoute(depot);
@@ -63,7 +106,7 @@ public class GreedyVRP {
         while (true) {
 
             // If we served all customers, exit.
-            if (this.customers.size() == 0)
+            if (unserved == 0)
                 break;
 
             // Get the last node of the current route. We will try to find the closest node to it that also satisfies the capacity constraint.
@@ -75,14 +118,28 @@ public class GreedyVRP {
             // The closest node, if any, to the last node in the route that also satisfies the capacity constraint.
             Node closestNode = null;
 
-            // Find the nearest neighbor based on distance
-            for (Node n: this.customers) {
-                double distance = this.distanceMatrix[lastInTheCurrentRoute.getId()][n.getId()];
+            // The capacity that the current vehicle has left, so that every customer is checked with one comparison.
+            int residualCapacity = currentVehicle.getCapacity() - currentVehicle.getLoad();
+
+            // Find the nearest neighbor using the spatial index
+            if (grid != null) {
+                closestNode = grid.findNearest(lastInTheCurrentRoute.getX(), lastInTheCurrentRoute.getY(),
+                        residualCapacity);
+
+                if (closestNode != null)
+                    smallestDistance = this.distanceMatrix.getDistance(lastInTheCurrentRoute.getId(), closestNode.getId());
+            }
 
-                // If we found a customer with closer that the value of "smallestDistance" that also satisfies the capacity constraint, store him temporarily
-                if ( (distance < smallestDistance) && (currentVehicle.getLoad() + n.getDemand() <= currentVehicle.getCapacity()) ) {
-                    smallestDistance = distance;
-                    closestNode = n;
+            // Find the nearest neighbor based on distance
+            else {
+                for (Node n: this.customers) {
+                    double distance = this.distanceMatrix.getDistance(lastInTheCurrentRoute.getId(), n.getId());
+
+                    // If we found a customer with closer that the value of "smallestDistance" that also satisfies the capacity constraint, store him temporarily
+                    if ( (distance < smallestDistance) && (n.getDemand() <= residualCapacity) ) {
+                        smallestDistance = distance;
+                        closestNode = n;
+                    }
                 }
             }
 
@@ -98,14 +155,19 @@ public class GreedyVRP {
                 // Increase the load of the vehicle by the demand of the new node-customer
                 currentVehicle.setLoad(currentVehicle.getLoad() + closestNode.getDemand());
 
-                // Remove customer from the non-served customers list.
-                this.customers.remove(closestNode);
+                // Remove customer from the non-served customers.
+                if (grid != null)
+                    grid.remove(closestNode);
+                else
+                    this.customers.remove(closestNode);
+
+                unserved--;
 
             // We didn't find any node that satisfies the condition.
             } else {
 
                 // Increase cost by the distance to travel from the last node back to depot
-                currentVehicle.setCost(currentVehicle.getCost() + this.distanceMatrix[lastInTheCurrentRoute.getId()][depot.getId()]);
+                currentVehicle.setCost(currentVehicle.getCost() + this.distanceMatrix.getDistance(lastInTheCurrentRoute.getId(), depot.getId()));
 
                 // Terminate current route by adding the depot as a final destination
                 currentVehicle.addNodeToRoute(depot);
@@ -117,7 +179,7 @@ public class GreedyVRP {
                 solution.setTotalCost(solution.getTotalCost() + currentVehicle.getCost());
 
                 // Recruit a new vehicle.
-                currentVehicle = this.vehicles.remove(0);
+                currentVehicle = this.vehicles.get(nextVehicle++);
 
                 // Add the depot as a starting point to the new route
                 currentVehicle.addNodeToRoute(depot);
@@ -126,7 +188,7 @@ public class GreedyVRP {
         }
 
         // Now add the final route to the solution
-        currentVehicle.setCost(currentVehicle.getCost() + this.distanceMatrix[currentVehicle.getLastNodeOfTheRoute().getId()][depot.getId()]);
+        currentVehicle.setCost(currentVehicle.getCost() + this.distanceMatrix.getDistance(currentVehicle.getLastNodeOfTheRoute().getId(), depot.getId()));
         currentVehicle.addNodeToRoute(depot);
         solution.addRoute(currentVehicle);
         solution.setTotalCost(solution.getTotalCost() + currentVehicle.getCost());
@@ -0,0 +1,67 @@
+package component3;
+
+import component1.Node;
+import component1.Route;
+import component1.Solution;
+import component2.DistanceMatrix;
+import component2.ProblemInitializer;
+
+/**
+ * Compares the cost of the greedy and the savings solutions of instances of increasing size, and checks that every
+ * customer of the savings solution is served exactly once without exceeding the capacity of its vehicle, and that
+ * the costs of its routes are right.
+ */
+class SavingsReport {
+
+    public static void main(String[] args) {
+        for (int size: new int[]{100, 1000, 5000}) {
+            ProblemInitializer initializer = new ProblemInitializer(61092, size, size);
+
+            long start = System.nanoTime();
+            Solution greedy = new GreedyVRP(initializer).findSolution();
+            long greedyTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Solution savings = new SavingsVRP(initializer).findSolution();
+            long savingsTime = System.nanoTime() - start;
+
+            check(savings, size, initializer.getDistanceMatrix());
+
+            System.out.printf("%d customers - Greedy: %.0f (%d routes, %.1f ms) - Savings: %.0f (%d routes, %.1f ms)%n",
+                    size, greedy.getTotalCost(), greedy.getRoutes().size(), greedyTime / 1e6, savings.getTotalCost(),
+                    savings.getRoutes().size(), savingsTime / 1e6);
+        }
+    }
+
+    private static void check(Solution solution, int size, DistanceMatrix distanceMatrix) {
+        boolean[] served = new boolean[size + 1];
+
+        for (Route route: solution.getRoutes()) {
+            int load = 0;
+
+            for (Node node: route.getRoute().subList(1, route.getRoute().size() - 1)) {
+                if (served[node.getId()])
+                    throw new IllegalStateException("Customer " + node.getId() + " is served twice");
+
+                served[node.getId()] = true;
+                load += node.getDemand();
+            }
+
+            if (load != route.getLoad() || load > route.getCapacity())
+                throw new IllegalStateException("Wrong load " + load + " of " + route);
+
+            double cost = 0;
+            for (int i = 0; i < route.getRoute().size() - 1; i++) {
+                cost += distanceMatrix.getDistance(route.getRoute().get(i).getId(), route.getRoute().get(i + 1).getId());
+            }
+
+            if (Math.abs(cost - route.getCost()) > 1e-6)
+                throw new IllegalStateException("Wrong cost " + cost + " of " + route);
+        }
+
+        for (int i = 1; i <= size; i++) {
+            if (!served[i])
+                throw new IllegalStateException("Customer " + i + " is not served");
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package component3;
+
+import component1.Node;
+import component1.Route;
+import component1.Solution;
+import component2.DistanceMatrix;
+import component2.NeighborLists;
+import component2.ProblemInitializer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This class contains all the necessary functionality in order to solve the VRP problem using the savings algorithm
+ * of Clarke and Wright.
+ *
+ * Every customer starts in a route of its own. Serving customers i and j one after the other, instead of returning to
+ * the depot in between, saves d(0, i) + d(0, j) - d(i, j). The pairs are visited by decreasing saving, and the routes of
+ * i and j are merged if i and j are at the ends of two different routes and their total load fits in a vehicle.
+ *
+ * For large instances only the pairs of a customer with its k nearest neighbors are considered, which gives almost the
+ * same solution in O(n * k * log n) time after the neighbor lists are built. When the distances are the Euclidean
+ * distances of the coordinates, the neighbors are found through a SpatialGrid in about O(n * k) time; otherwise
+ * NeighborLists scans the whole distance matrix.
+ */
+public class SavingsVRP {
+
+    /**
+     * Up to this number of customers, every pair of customers is considered by default.
+     */
+    private static final int ALL_PAIRS_LIMIT = 2000;
+
+    /**
+     * The number of nearest neighbors of every customer that are considered by default above ALL_PAIRS_LIMIT.
+     */
+    private static final int DEFAULT_NEIGHBORS = 40;
+
+    /**
+     * The key of a pair that is not worth merging. It is sorted after every other key.
+     */
+    private static final long NO_SAVING = Long.MAX_VALUE;
+
+    /**
+     * The largest number of pairs, which are kept in a single array and indexed by an int.
+     */
+    private static final long MAX_PAIRS = Integer.MAX_VALUE - 8;
+
+    /**
+     * All the nodes, indexed by id. Position 0 contains the depot.
+     */
+    private Node[] nodes;
+
+    /**
+     * All the vehicles.
+     */
+    private List<Route> vehicles;
+
+    /**
+     * The distance matrix for the customers
+     */
+    private DistanceMatrix distanceMatrix;
+
+    /**
+     * The ids of the nearest neighbors of every customer, "partners" per customer, or null to consider every pair of
+     * customers.
+     */
+    private int[] neighbors;
+
+    /**
+     * The number of partners of every customer: its nearest neighbors, or every node.
+     */
+    private int partners;
+
+    /**
+     * Constructor. Every pair of customers is considered for small instances, and the pairs of a customer with its
+     * nearest neighbors for large ones.
+     *
+     * @param initializer The instance of the problem to be solved.
+     */
+    public SavingsVRP(ProblemInitializer initializer) {
+        this(initializer, initializer.getDistanceMatrix().getSize() - 1 <= ALL_PAIRS_LIMIT ? 0 : DEFAULT_NEIGHBORS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param initializer The instance of the problem to be solved.
+     * @param neighbors The number of nearest neighbors of every customer that are considered, or 0 for every customer.
+     * @throws IllegalArgumentException if every pair of customers is considered and there are too many of them.
+     */
+    public SavingsVRP(ProblemInitializer initializer, int neighbors) {
+        if (neighbors < 0)
+            throw new IllegalArgumentException("The number of neighbors must not be negative: " + neighbors);
+
+        this.vehicles = initializer.getVehicles();
+        this.distanceMatrix = initializer.getDistanceMatrix();
+
+        List<Node> customers = initializer.getCustomers();
+        this.nodes = new Node[this.distanceMatrix.getSize()];
+        for (Node node: customers) {
+            this.nodes[node.getId()] = node;
+        }
+
+        this.partners = neighbors > 0 ? Math.max(0, Math.min(neighbors, this.nodes.length - 2)) : this.nodes.length;
+
+        if ((long) this.nodes.length * this.partners > MAX_PAIRS)
+            throw new IllegalArgumentException("Too many pairs for " + (this.nodes.length - 1) + " customers with " +
+                    (neighbors > 0 ? neighbors + " neighbors" : "every customer") + ", consider fewer neighbors");
+
+        if (neighbors > 0)
+            this.neighbors = findNeighbors(customers);
+    }
+
+    public DistanceMatrix getDistanceMatrix() {
+        return distanceMatrix;
+    }
+
+    /**
+     * Finds the nearest neighbors of every customer, through a spatial grid if the distances are Euclidean.
+     *
+     * @param customers All the nodes of the problem. Position 0 contains the depot.
+     * @return The neighbors of customer i in positions [i * partners, (i + 1) * partners).
+     */
+    private int[] findNeighbors(List<Node> customers) {
+        final int[] neighbors = new int[this.nodes.length * this.partners];
+
+        if (SpatialGrid.isEuclidean(customers, this.distanceMatrix)) {
+            final SpatialGrid grid = new SpatialGrid(customers.subList(1, customers.size()));
+
+            // The grid is only read, so the customers can be searched in parallel.
+            IntStream.range(1, this.nodes.length).parallel().forEach(i ->
+                    grid.findNearest(this.nodes[i], this.partners, neighbors, i * this.partners));
+        } else {
+            NeighborLists neighborLists = new NeighborLists(this.distanceMatrix, this.partners);
+
+            for (int i = 1; i < this.nodes.length; i++) {
+                for (int r = 0; r < this.partners; r++) {
+                    neighbors[i * this.partners + r] = neighborLists.getNeighbor(i, r);
+                }
+            }
+        }
+
+        return neighbors;
+    }
+
+    /**
+     * Finds and returns a solution to the VRP using the savings algorithm
+     *
+     * @return Solution
+     * @throws IllegalStateException if the solution needs more routes than the available vehicles
+     */
+    public Solution findSolution() {
+        int size = this.nodes.length;
+
+        // Without vehicles nothing can be merged, and buildSolution reports that the customers do not fit.
+        int capacity = this.vehicles.isEmpty() ? 0 : this.vehicles.get(0).getCapacity();
+
+        // The two nodes next to every customer within its route. 0 is the depot, so a customer with a 0 is at an end of
+        // its route. The routes are not directed, so they never have to be reversed when they are merged.
+        int[] link0 = new int[size];
+        int[] link1 = new int[size];
+
+        // The routes are the sets of a union-find structure. The load of a route is kept at its root.
+        int[] parent = new int[size];
+        int[] load = new int[size];
+
+        for (int i = 1; i < size; i++) {
+            parent[i] = i;
+            load[i] = this.nodes[i].getDemand();
+        }
+
+        // Visit the pairs by decreasing saving.
+        long[] keys = findSavings(this.partners);
+
+        for (long key: keys) {
+            if (key == NO_SAVING)
+                break;
+
+            int index = (int) key;
+            int i = index / this.partners;
+            int j = getPartner(i, index % this.partners);
+
+            // Both customers must be at an end of their routes.
+            if ((link0[i] != 0 && link1[i] != 0) || (link0[j] != 0 && link1[j] != 0))
+                continue;
+
+            // The routes must be different and their total load must fit in a vehicle.
+            int rootI = find(parent, i);
+            int rootJ = find(parent, j);
+
+            if (rootI == rootJ || load[rootI] + load[rootJ] > capacity)
+                continue;
+
+            // Merge the routes, by replacing the depot next to i with j and the depot next to j with i.
+            if (link0[i] == 0)
+                link0[i] = j;
+            else
+                link1[i] = j;
+
+            if (link0[j] == 0)
+                link0[j] = i;
+            else
+                link1[j] = i;
+
+            parent[rootJ] = rootI;
+            load[rootI] += load[rootJ];
+        }
+
+        return buildSolution(link0, link1, load, parent);
+    }
+
+    /**
+     * Computes the saving of every pair and sorts the pairs by decreasing saving. The pair of customer i with its r-th
+     * partner has index i * partners + r, which the constructor keeps within an int, and its key is the saving as a
+     * float in the high 32 bits, flipped so that the largest saving comes first, and the index in the low 32 bits, so
+     * that ties are broken by the smaller index.
+     *
+     * @return The sorted keys. The pairs with no saving are at the end, with key NO_SAVING.
+     */
+    private long[] findSavings(final int partners) {
+        final int size = this.nodes.length;
+        final long[] keys = new long[size * partners];
+
+        // Every customer is independent of the others, so the savings can be computed in parallel.
+        IntStream.range(0, size).parallel().forEach(i -> {
+            for (int r = 0; r < partners; r++) {
+                int j = i == 0 ? 0 : getPartner(i, r);
+                double saving = 0;
+
+                // Every pair is kept once, unless only one of its customers is a near neighbor of the other.
+                if (j != 0 && (this.neighbors != null || i < j))
+                    saving = this.distanceMatrix.getDistance(0, i) + this.distanceMatrix.getDistance(0, j) -
+                            this.distanceMatrix.getDistance(i, j);
+
+                keys[i * partners + r] = saving > 0 ?
+                        ((long) (Integer.MAX_VALUE - Float.floatToIntBits((float) saving)) << 32) | (i * partners + r) :
+                        NO_SAVING;
+            }
+        });
+
+        Arrays.parallelSort(keys);
+
+        return keys;
+    }
+
+    /**
+     * Returns the r-th partner of customer i.
+     */
+    private int getPartner(int i, int r) {
+        return this.neighbors != null ? this.neighbors[i * this.partners + r] : r;
+    }
+
+    /**
+     * Finds the root of the route of a customer, halving the path to it on the way.
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+
+        return i;
+    }
+
+    /**
+     * Builds the routes of the solution by walking every merged route from one of its ends. The routes are ordered
+     * by the smallest id of the customers at their ends.
+     */
+    private Solution buildSolution(int[] link0, int[] link1, int[] load, int[] parent) {
+        Solution solution = new Solution();
+        Node depot = this.nodes[0];
+        boolean[] routed = new boolean[this.nodes.length];
+        int nextVehicle = 0;
+
+        for (int start = 1; start < this.nodes.length; start++) {
+
+            // Every route is walked once, from the end with the smaller id.
+            if (routed[start] || (link0[start] != 0 && link1[start] != 0))
+                continue;
+
+            if (nextVehicle == this.vehicles.size())
+                throw new IllegalStateException("The savings solution needs more than " + this.vehicles.size() + " vehicles");
+
+            Route currentVehicle = this.vehicles.get(nextVehicle++);
+            currentVehicle.addNodeToRoute(depot);
+
+            int previous = 0;
+            int current = start;
+            double cost = 0;
+
+            while (current != 0) {
+                cost += this.distanceMatrix.getDistance(previous, current);
+                currentVehicle.addNodeToRoute(this.nodes[current]);
+                routed[current] = true;
+
+                int next = link0[current] == previous ? link1[current] : link0[current];
+                previous = current;
+                current = next;
+            }
+
+            // Return to the depot
+            cost += this.distanceMatrix.getDistance(previous, 0);
+            currentVehicle.addNodeToRoute(depot);
+
+            currentVehicle.setCost(cost);
+            currentVehicle.setLoad(load[find(parent, start)]);
+
+            solution.addRoute(currentVehicle);
+            solution.setTotalCost(solution.getTotalCost() + cost);
+        }
+
+        return solution;
+    }
+}
@@ -0,0 +1,377 @@
+package component3;
+
+import component1.Node;
+import component2.DistanceMatrix;
+import component2.FlatDistanceMatrix;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A uniform grid over the coordinates of the customers, that answers "nearest unserved customer whose demand fits in
+ * the remaining capacity" queries without scanning every customer.
+ *
+ * The customers of every cell are kept in a contiguous part of a single primitive array, so a served customer is
+ * deleted in O(1) by swapping it with the last customer of its cell. The nearest customer is searched in rings of
+ * cells around the query point, until no cell further away can contain a closer customer.
+ *
+ * The distances are the rounded Euclidean distances of the coordinates, so the grid only agrees with a distance matrix
+ * that holds exactly those, which isEuclidean checks. Explicit CVRPLIB weights (whose nodes have no coordinates) or
+ * road distances do not. Ties are broken in favor of the smallest id, like the linear scan of the greedy algorithm
+ * does.
+ */
+class SpatialGrid {
+
+    /**
+     * All the customers, indexed by id.
+     */
+    private final Node[] nodes;
+
+    /**
+     * The smallest coordinates of the customers.
+     */
+    private final int minX, minY;
+
+    /**
+     * The width (and height) of every cell.
+     */
+    private final double cellWidth;
+
+    /**
+     * The number of columns and rows of the grid.
+     */
+    private final int columns, rows;
+
+    /**
+     * The position of the first customer of every cell in the "items" array.
+     */
+    private final int[] cellStart;
+
+    /**
+     * The number of unserved customers of every cell.
+     */
+    private final int[] cellCount;
+
+    /**
+     * The smallest demand among the unserved customers of every cell.
+     */
+    private final int[] cellMinDemand;
+
+    /**
+     * The ids of the customers, grouped by cell.
+     */
+    private final int[] items;
+
+    /**
+     * The position of every customer in the "items" array, indexed by id.
+     */
+    private final int[] slotOf;
+
+    /**
+     * The cell of every customer, indexed by id.
+     */
+    private final int[] cellOf;
+
+    /**
+     * The number of unserved customers per demand value.
+     */
+    private final int[] demandCount;
+
+    /**
+     * Constructor
+     *
+     * @param customers The customers to be indexed. The depot must not be included.
+     */
+    SpatialGrid(List<Node> customers) {
+        int maxId = 0, maxDemand = 0;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+
+        for (Node customer: customers) {
+            maxId = Math.max(maxId, customer.getId());
+            maxDemand = Math.max(maxDemand, customer.getDemand());
+            minX = Math.min(minX, customer.getX());
+            minY = Math.min(minY, customer.getY());
+            maxX = Math.max(maxX, customer.getX());
+            maxY = Math.max(maxY, customer.getY());
+        }
+
+        if (customers.isEmpty())
+            minX = minY = maxX = maxY = 0;
+
+        // Aim for about two customers per cell.
+        int side = Math.max(1, (int) Math.ceil(Math.sqrt(customers.size() / 2.0)));
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = Math.max(1.0, (double) (Math.max(maxX - minX, maxY - minY) + 1) / side);
+        this.columns = Math.max(1, (int) Math.ceil((maxX - minX + 1) / this.cellWidth));
+        this.rows = Math.max(1, (int) Math.ceil((maxY - minY + 1) / this.cellWidth));
+
+        this.nodes = new Node[maxId + 1];
+        this.slotOf = new int[maxId + 1];
+        this.cellOf = new int[maxId + 1];
+        this.items = new int[customers.size()];
+        this.cellStart = new int[this.columns * this.rows];
+        this.cellCount = new int[this.columns * this.rows];
+        this.cellMinDemand = new int[this.columns * this.rows];
+        this.demandCount = new int[maxDemand + 1];
+
+        // Count the customers of every cell, then lay the cells out one after the other.
+        for (Node customer: customers) {
+            int cell = this.cell(this.column(customer.getX()), this.row(customer.getY()));
+            this.cellOf[customer.getId()] = cell;
+            this.cellCount[cell]++;
+        }
+
+        for (int cell = 1; cell < this.cellStart.length; cell++) {
+            this.cellStart[cell] = this.cellStart[cell - 1] + this.cellCount[cell - 1];
+        }
+
+        Arrays.fill(this.cellCount, 0);
+        Arrays.fill(this.cellMinDemand, Integer.MAX_VALUE);
+
+        for (Node customer: customers) {
+            int cell = this.cellOf[customer.getId()];
+            int slot = this.cellStart[cell] + this.cellCount[cell]++;
+
+            this.items[slot] = customer.getId();
+            this.slotOf[customer.getId()] = slot;
+            this.nodes[customer.getId()] = customer;
+            this.cellMinDemand[cell] = Math.min(this.cellMinDemand[cell], customer.getDemand());
+            this.demandCount[customer.getDemand()]++;
+        }
+    }
+
+    /**
+     * Checks that a distance matrix holds the rounded Euclidean distances of the coordinates of the nodes, as the grid
+     * computes them. Every node is compared with the depot and with the next node, which costs O(n) instead of the
+     * O(n^2) of comparing every pair, and catches matrices that are not computed from the coordinates.
+     *
+     * @param nodes All the nodes of the problem, indexed by id. Position 0 contains the depot.
+     * @param distanceMatrix The distance matrix
+     * @return True if the sampled distances match the coordinates
+     */
+    static boolean isEuclidean(List<Node> nodes, DistanceMatrix distanceMatrix) {
+        for (int i = 1; i < nodes.size(); i++) {
+            if (!isEuclidean(nodes.get(0), nodes.get(i), distanceMatrix) ||
+                    !isEuclidean(nodes.get(i - 1), nodes.get(i), distanceMatrix))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks that the distance of two nodes is the rounded Euclidean distance of their coordinates, as precisely as
+     * a FLOAT matrix keeps it.
+     */
+    private static boolean isEuclidean(Node a, Node b, DistanceMatrix distanceMatrix) {
+        long expected = FlatDistanceMatrix.euclidean(a.getX(), a.getY(), b.getX(), b.getY());
+        return (float) distanceMatrix.getDistance(a.getId(), b.getId()) == (float) expected;
+    }
+
+    private int column(int x) {
+        return Math.max(0, Math.min(this.columns - 1, (int) ((x - this.minX) / this.cellWidth)));
+    }
+
+    private int row(int y) {
+        return Math.max(0, Math.min(this.rows - 1, (int) ((y - this.minY) / this.cellWidth)));
+    }
+
+    private int cell(int column, int row) {
+        return row * this.columns + column;
+    }
+
+    /**
+     * Removes a served customer from the grid, in O(1) (plus the size of its cell, if its demand was the smallest one).
+     *
+     * @param customer The customer to be removed
+     */
+    void remove(Node customer) {
+        int id = customer.getId();
+        int cell = this.cellOf[id];
+        int last = this.cellStart[cell] + this.cellCount[cell] - 1;
+
+        // Move the last customer of the cell into the empty slot.
+        int moved = this.items[last];
+        this.items[this.slotOf[id]] = moved;
+        this.slotOf[moved] = this.slotOf[id];
+        this.cellCount[cell]--;
+
+        this.demandCount[customer.getDemand()]--;
+
+        // If the removed customer had the smallest demand of the cell, find the new smallest one.
+        if (customer.getDemand() == this.cellMinDemand[cell]) {
+            this.cellMinDemand[cell] = Integer.MAX_VALUE;
+
+            for (int slot = this.cellStart[cell]; slot < last; slot++) {
+                this.cellMinDemand[cell] = Math.min(this.cellMinDemand[cell], this.nodes[this.items[slot]].getDemand());
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest unserved customer to a given point, whose demand does not exceed the given capacity.
+     *
+     * @param x The X-axis coordinate of the point
+     * @param y The Y-axis coordinate of the point
+     * @param capacity The remaining capacity of the vehicle
+     * @return The nearest customer or null if no customer fits.
+     */
+    Node findNearest(int x, int y, int capacity) {
+        // If even the smallest unserved demand does not fit, there is no need to search at all.
+        boolean fits = false;
+        for (int demand = 0; demand < this.demandCount.length && demand <= capacity; demand++) {
+            if (this.demandCount[demand] > 0) {
+                fits = true;
+                break;
+            }
+        }
+
+        if (!fits)
+            return null;
+
+        int centerColumn = this.column(x);
+        int centerRow = this.row(y);
+
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+
+        for (int ring = 0; ring <= Math.max(this.columns, this.rows); ring++) {
+
+            // Every customer outside the rings searched so far is at least this far away. A customer that far cannot
+            // be rounded down to the best distance found, so the search can stop.
+            if (best != -1 && this.lowerBound(x, y, centerColumn, centerRow, ring) >= bestDistance + 0.5)
+                break;
+
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= this.rows)
+                    continue;
+
+                // Only the perimeter of the ring is new, the inner cells were searched in the previous rings.
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    if (column < 0 || column >= this.columns)
+                        continue;
+
+                    int cell = this.cell(column, row);
+                    if (this.cellCount[cell] == 0 || this.cellMinDemand[cell] > capacity)
+                        continue;
+
+                    for (int slot = this.cellStart[cell]; slot < this.cellStart[cell] + this.cellCount[cell]; slot++) {
+                        Node customer = this.nodes[this.items[slot]];
+
+                        if (customer.getDemand() > capacity)
+                            continue;
+
+                        long distance = FlatDistanceMatrix.euclidean(x, y, customer.getX(), customer.getY());
+
+                        if (distance < bestDistance || (distance == bestDistance && customer.getId() < best)) {
+                            bestDistance = distance;
+                            best = customer.getId();
+                        }
+                    }
+                }
+            }
+        }
+
+        return best == -1 ? null : this.nodes[best];
+    }
+
+    /**
+     * Finds the k customers nearest to a customer, other than itself, sorted by increasing distance (ties are broken by
+     * the smaller id), like NeighborLists does over the same distances but without the depot. Removed customers are
+     * not considered. The grid is only read, so several threads may search it at the same time, as long as no
+     * customer is removed meanwhile.
+     *
+     * @param customer The customer whose neighbors are searched
+     * @param k The number of neighbors
+     * @param neighbors The array that receives the ids of the neighbors
+     * @param offset The position of the nearest neighbor in the array
+     * @return The number of neighbors found, which is less than k only if there are not enough customers.
+     */
+    int findNearest(Node customer, int k, int[] neighbors, int offset) {
+        if (k <= 0)
+            return 0;
+
+        int x = customer.getX();
+        int y = customer.getY();
+        int centerColumn = this.column(x);
+        int centerRow = this.row(y);
+
+        // The distances of the neighbors found so far, in the same order as their ids.
+        long[] distances = new long[k];
+        int found = 0;
+
+        for (int ring = 0; ring <= Math.max(this.columns, this.rows); ring++) {
+
+            // Like findNearest, stop when no customer outside the rings can be rounded down to the farthest neighbor.
+            if (found == k && this.lowerBound(x, y, centerColumn, centerRow, ring) >= distances[k - 1] + 0.5)
+                break;
+
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < 0 || row >= this.rows)
+                    continue;
+
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    if (column < 0 || column >= this.columns)
+                        continue;
+
+                    int cell = this.cell(column, row);
+
+                    for (int slot = this.cellStart[cell]; slot < this.cellStart[cell] + this.cellCount[cell]; slot++) {
+                        int id = this.items[slot];
+                        if (id == customer.getId())
+                            continue;
+
+                        Node other = this.nodes[id];
+                        long distance = FlatDistanceMatrix.euclidean(x, y, other.getX(), other.getY());
+
+                        // If the list is full and this customer is not closer than the farthest one, ignore it.
+                        if (found == k && (distance > distances[k - 1] ||
+                                (distance == distances[k - 1] && id > neighbors[offset + k - 1])))
+                            continue;
+
+                        // Shift every farther neighbor one position to the right and insert the new one.
+                        int position = found < k ? found++ : k - 1;
+                        while (position > 0 && (distances[position - 1] > distance ||
+                                (distances[position - 1] == distance && neighbors[offset + position - 1] > id))) {
+                            distances[position] = distances[position - 1];
+                            neighbors[offset + position] = neighbors[offset + position - 1];
+                            position--;
+                        }
+
+                        distances[position] = distance;
+                        neighbors[offset + position] = id;
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns a lower bound of the distance of the given point to any cell that is "ring" or more cells away from the
+     * center cell.
+     */
+    private double lowerBound(int x, int y, int centerColumn, int centerRow, int ring) {
+        double bound = Double.POSITIVE_INFINITY;
+
+        // The sides of the block of the inner rings. A side that lies on the border of the grid has nothing beyond it.
+        if (centerColumn - ring + 1 > 0)
+            bound = Math.min(bound, x - (this.minX + (centerColumn - ring + 1) * this.cellWidth));
+        if (centerColumn + ring < this.columns)
+            bound = Math.min(bound, this.minX + (centerColumn + ring) * this.cellWidth - x);
+        if (centerRow - ring + 1 > 0)
+            bound = Math.min(bound, y - (this.minY + (centerRow - ring + 1) * this.cellWidth));
+        if (centerRow + ring < this.rows)
+            bound = Math.min(bound, this.minY + (centerRow + ring) * this.cellWidth - y);
+
+        return Math.max(0, bound);
+    }
+}
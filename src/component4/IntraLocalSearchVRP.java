@@ -1,7 +1,14 @@
 package component4;
 
+import component1.ArraySolution;
 import component1.Node;
 import component1.Solution;
+import component2.DistanceMatrix;
+import component2.NeighborLists;
+import metrics.SearchMetrics;
+
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * @author Stamatis Pitsios
@@ -14,13 +21,61 @@ public class IntraLocalSearchVRP {
     /**
      * The distance matrix
      */
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
+
+    /**
+     * The nearest neighbors of every node. If they are given, the search runs in "granular" mode: a customer is only
+     * considered for insertion next to one of its nearest neighbors.
+     */
+    private NeighborLists neighborLists;
+
+    /**
+     * The position of every customer within its route, indexed by customer id. Only used in granular mode.
+     */
+    private int[] positionOf;
+
+    /**
+     * The route of every customer, indexed by customer id. Only used in granular mode.
+     */
+    private int[] routeOf;
+
+    /**
+     * The metrics that the searches report to, or null.
+     */
+    private SearchMetrics metrics;
+
+    /**
+     * The number of moves evaluated by the current search, which is added to the metrics once it ends.
+     */
+    private long evaluated;
 
     /**
      * Default Constructor
      */
-    public IntraLocalSearchVRP(double[][] distanceMatrix) {
+    public IntraLocalSearchVRP(DistanceMatrix distanceMatrix) {
+        this.distanceMatrix = distanceMatrix;
+    }
+
+    /**
+     * Constructor for the granular mode.
+     *
+     * @param distanceMatrix The distance matrix
+     * @param neighborLists The nearest neighbors of every node
+     */
+    public IntraLocalSearchVRP(DistanceMatrix distanceMatrix, NeighborLists neighborLists) {
         this.distanceMatrix = distanceMatrix;
+        this.neighborLists = neighborLists;
+        this.positionOf = new int[distanceMatrix.getSize()];
+        this.routeOf = new int[distanceMatrix.getSize()];
+    }
+
+    /**
+     * Sets the metrics that the searches report the number of evaluated moves to.
+     *
+     * @param metrics The metrics, or null for none.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
     }
 
     /**
@@ -31,6 +86,9 @@ public class IntraLocalSearchVRP {
      */
     public IntraRelocationMove findBestIntraRelocationMove(Solution solution) {
 
+        if (this.neighborLists != null)
+            return findBestGranularIntraRelocationMove(solution);
+
         // Create an IntraRelocationMove object
         IntraRelocationMove relocationMove = new IntraRelocationMove();
 
@@ -63,15 +121,16 @@ public class IntraLocalSearchVRP {
                     Node afterSuccessor = solution.getRoutes().get(i).getRoute().get(k + 1);
 
                     // Calculate the cost of the solution, if we apply the specific relocation move.
-                    double costRemoved = this.distanceMatrix[predecessor.getId()][relocatedCustomer.getId()] +
-                            this.distanceMatrix[relocatedCustomer.getId()][successor.getId()] +
-                            this.distanceMatrix[after.getId()][afterSuccessor.getId()];
+                    double costRemoved = this.distanceMatrix.getDistance(predecessor.getId(), relocatedCustomer.getId()) +
+                            this.distanceMatrix.getDistance(relocatedCustomer.getId(), successor.getId()) +
+                            this.distanceMatrix.getDistance(after.getId(), afterSuccessor.getId());
 
-                    double costAdded = this.distanceMatrix[after.getId()][relocatedCustomer.getId()] +
-                            this.distanceMatrix[relocatedCustomer.getId()][afterSuccessor.getId()] +
-                            this.distanceMatrix[predecessor.getId()][successor.getId()];
+                    double costAdded = this.distanceMatrix.getDistance(after.getId(), relocatedCustomer.getId()) +
+                            this.distanceMatrix.getDistance(relocatedCustomer.getId(), afterSuccessor.getId()) +
+                            this.distanceMatrix.getDistance(predecessor.getId(), successor.getId());
 
                     double newCost = costAdded - costRemoved;
+                    this.evaluated++;
 
                     // If the move is the best found so far, store it
                     if (newCost < relocationMove.getCost()) {
@@ -84,9 +143,222 @@ public class IntraLocalSearchVRP {
             }
         }
 
+        report();
+        return relocationMove;
+    }
+
+    /**
+     * Finds the best intra-route relocation move, considering only the moves that insert a customer right after or
+     * right before one of its nearest neighbors.
+     *
+     * @param solution The solution which we want to improve
+     * @return IntraRelocationMove the best possible granular intra relocation move
+     */
+    private IntraRelocationMove findBestGranularIntraRelocationMove(Solution solution) {
+
+        // Create an IntraRelocationMove object
+        IntraRelocationMove relocationMove = new IntraRelocationMove();
+
+        // Index the position of every customer, so that the neighbors can be located in O(1). The customers that no
+        // route serves, e.g. the ones of another solution searched before, are left at -1.
+        Arrays.fill(this.routeOf, -1);
+        Arrays.fill(this.positionOf, -1);
+
+        for (int i = 0; i < solution.getRoutes().size(); i++) {
+            List<Node> route = solution.getRoutes().get(i).getRoute();
+
+            for (int j = 1; j < route.size() - 1; j++) {
+                this.routeOf[route.get(j).getId()] = i;
+                this.positionOf[route.get(j).getId()] = j;
+            }
+        }
+
+        // Loop for every vehicle that serves a set of customers
+        for (int i = 0; i < solution.getRoutes().size(); i++) {
+            List<Node> route = solution.getRoutes().get(i).getRoute();
+
+            // Loop for every customer in the current route
+            for (int j = 1; j < route.size() - 1; j++) {
+                int relocatedCustomer = route.get(j).getId();
+
+                // Loop for every near neighbor of the customer
+                for (int n = 0; n < this.neighborLists.getK(); n++) {
+                    int neighbor = this.neighborLists.getNeighbor(relocatedCustomer, n);
+
+                    // The depot is at both ends of the route, so the customer can be placed first or last.
+                    if (neighbor == 0) {
+                        evaluateIntraRelocationMove(route, i, j, 0, relocationMove);
+                        evaluateIntraRelocationMove(route, i, j, route.size() - 2, relocationMove);
+                    }
+
+                    // Otherwise the neighbor must be served by the same route. Try both sides of it.
+                    else if (this.routeOf[neighbor] == i) {
+                        evaluateIntraRelocationMove(route, i, j, this.positionOf[neighbor], relocationMove);
+                        evaluateIntraRelocationMove(route, i, j, this.positionOf[neighbor] - 1, relocationMove);
+                    }
+                }
+            }
+        }
+
+        report();
+        return relocationMove;
+    }
+
+    /**
+     * Finds the best intra-route relocation move within a single route of a given solution.
+     *
+     * @param solution The solution which we want to improve
+     * @param i The route to be searched
+     * @return IntraRelocationMove the best possible intra relocation move within route i
+     */
+    public IntraRelocationMove findBestIntraRelocationMove(Solution solution, int i) {
+
+        // Create an IntraRelocationMove object
+        IntraRelocationMove relocationMove = new IntraRelocationMove();
+
+        List<Node> route = solution.getRoutes().get(i).getRoute();
+
+        // Loop for every customer of the route and every possible relocation position
+        for (int j = 1; j < route.size() - 1; j++) {
+            for (int k = 0; k < route.size() - 1; k++) {
+                evaluateIntraRelocationMove(route, i, j, k, relocationMove);
+            }
+        }
+
+        report();
+        return relocationMove;
+    }
+
+    /**
+     * Evaluates the relocation of the customer in position j after the customer in position k of route i and stores
+     * it in "relocationMove" if it is the best found so far.
+     */
+    private void evaluateIntraRelocationMove(List<Node> route, int i, int j, int k, IntraRelocationMove relocationMove) {
+
+        // If the 2 customers are the same in the current iteration, ignore this iteration
+        if (j == k || k == j - 1)
+            return;
+
+        evaluateIntraRelocationMove(i, j, k, route.get(j - 1).getId(), route.get(j).getId(), route.get(j + 1).getId(),
+                route.get(k).getId(), route.get(k + 1).getId(), relocationMove);
+    }
+
+    /**
+     * Evaluates the relocation of the customer in position j after the customer in position k of route i, given the
+     * ids of the nodes involved, and stores it in "relocationMove" if it is the best found so far.
+     */
+    private void evaluateIntraRelocationMove(int i, int j, int k, int predecessor, int relocatedCustomer, int successor,
+                                             int after, int afterSuccessor, IntraRelocationMove relocationMove) {
+
+        // Calculate the cost of the solution, if we apply the specific relocation move.
+        double costRemoved = this.distanceMatrix.getDistance(predecessor, relocatedCustomer) +
+                this.distanceMatrix.getDistance(relocatedCustomer, successor) +
+                this.distanceMatrix.getDistance(after, afterSuccessor);
+
+        double costAdded = this.distanceMatrix.getDistance(after, relocatedCustomer) +
+                this.distanceMatrix.getDistance(relocatedCustomer, afterSuccessor) +
+                this.distanceMatrix.getDistance(predecessor, successor);
+
+        double newCost = costAdded - costRemoved;
+        this.evaluated++;
+
+        // If the move is the best found so far, store it
+        if (newCost < relocationMove.getCost()) {
+            relocationMove.setCost(newCost);
+            relocationMove.setRoute(i);
+            relocationMove.setCustomerPosition(j);
+            relocationMove.setRelocationPosition(k);
+        }
+    }
+
+    /**
+     * Finds the best possible neighbor of a given array-backed solution, by checking all possible intra-route
+     * relocation moves (or only the granular ones, if nearest neighbors are given).
+     *
+     * @param solution The solution which we want to improve
+     * @return IntraRelocationMove the best possible intra relocation move
+     */
+    public IntraRelocationMove findBestIntraRelocationMove(ArraySolution solution) {
+
+        // Create an IntraRelocationMove object
+        IntraRelocationMove relocationMove = new IntraRelocationMove();
+
+        // Loop for every vehicle that serves a set of customers
+        for (int i = 0; i < solution.getNumberOfRoutes(); i++) {
+            int routeSize = solution.getRouteSize(i);
+
+            // Loop for every customer in the current route
+            for (int j = 1; j < routeSize - 1; j++) {
+                int predecessor = solution.getNode(i, j - 1);
+                int relocatedCustomer = solution.getNode(i, j);
+                int successor = solution.getNode(i, j + 1);
+
+                // Exhaustive mode: loop for every possible relocation position
+                if (this.neighborLists == null) {
+                    for (int k = 0; k < routeSize - 1; k++) {
+
+                        // If the 2 customers are the same in the current iteration, ignore this iteration
+                        if (j == k || k == j - 1)
+                            continue;
+
+                        evaluateIntraRelocationMove(i, j, k, predecessor, relocatedCustomer, successor,
+                                solution.getNode(i, k), solution.getNode(i, k + 1), relocationMove);
+                    }
+                    continue;
+                }
+
+                // Granular mode: loop for every near neighbor of the customer
+                for (int n = 0; n < this.neighborLists.getK(); n++) {
+                    int neighbor = this.neighborLists.getNeighbor(relocatedCustomer, n);
+
+                    // The depot is at both ends of the route, otherwise the neighbor must be served by the same route.
+                    if (neighbor != 0 && solution.getRouteOf(neighbor) != i)
+                        continue;
+
+                    int first = neighbor == 0 ? 0 : solution.getPositionOf(neighbor) - 1;
+                    int second = neighbor == 0 ? routeSize - 2 : solution.getPositionOf(neighbor);
+
+                    // Try both sides of the neighbor
+                    for (int side = 0; side < 2; side++) {
+                        int k = side == 0 ? first : second;
+
+                        if (j == k || k == j - 1)
+                            continue;
+
+                        evaluateIntraRelocationMove(i, j, k, predecessor, relocatedCustomer, successor,
+                                solution.getNode(i, k), solution.getNode(i, k + 1), relocationMove);
+                    }
+                }
+            }
+        }
+
+        report();
         return relocationMove;
     }
 
+    /**
+     * Adds the number of moves evaluated by the search that just ended to the metrics, if any.
+     */
+    private void report() {
+        if (this.metrics != null)
+            this.metrics.add(SearchMetrics.Counter.MOVES_EVALUATED, this.evaluated);
+
+        this.evaluated = 0;
+    }
+
+    /**
+     * Applies an intra-route relocation move to a given array-backed solution
+     *
+     * @param solution The solution to improve
+     * @param move The relocation move to be applied
+     */
+    public void applyIntraRelocationMove(ArraySolution solution, IntraRelocationMove move) {
+        if (move.getCustomerPosition() < move.getRelocationPosition())
+            solution.relocate(move.getRoute(), move.getCustomerPosition(), move.getRoute(), move.getRelocationPosition());
+        else
+            solution.relocate(move.getRoute(), move.getCustomerPosition(), move.getRoute(), move.getRelocationPosition() + 1);
+    }
+
     /**
      * Applies an intra-route relocation move to a given solution
      *
@@ -0,0 +1,23 @@
+package component4;
+
+import benchmark.BenchmarkRunner;
+import component1.Solution;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+
+/**
+ * Benchmarks one sweep of the intra-route relocation neighborhood over the greedy solution.
+ */
+class IntraSearchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        for (int size: BenchmarkRunner.sizes(args)) {
+            GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, size, size));
+            final Solution solution = greedyVRP.findSolution();
+            final IntraLocalSearchVRP intraLocalSearchVRP = new IntraLocalSearchVRP(greedyVRP.getDistanceMatrix());
+
+            BenchmarkRunner.run("findBestIntraRelocationMove", size,
+                    () -> intraLocalSearchVRP.findBestIntraRelocationMove(solution));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package component5;
+
+import component1.ArraySolution;
+import component1.Solution;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+import component4.IntraLocalSearchVRP;
+import component4.IntraRelocationMove;
+
+/**
+ * Runs the local search of TestComponent5 (best intra-route or inter-route relocation, until neither improves) over
+ * the greedy solution of instances of increasing size, once on the Solution and once on the ArraySolution, checks that
+ * both apply exactly the same moves, and prints their costs and running times.
+ */
+class ArraySolutionReport {
+
+    public static void main(String[] args) {
+        for (int size: new int[]{30, 200, 500}) {
+            GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, size, size));
+            Solution initialSolution = greedyVRP.findSolution();
+
+            IntraLocalSearchVRP intraLocalSearchVRP = new IntraLocalSearchVRP(greedyVRP.getDistanceMatrix());
+            InterLocalSearchVRP interLocalSearchVRP = new InterLocalSearchVRP(greedyVRP.getDistanceMatrix());
+
+            // The list-backed search
+            Solution solution = initialSolution.cloneSolution();
+            StringBuilder listMoves = new StringBuilder();
+
+            long start = System.nanoTime();
+            int listIterations = 0;
+
+            while (true) {
+                IntraRelocationMove intraRelocationMove = intraLocalSearchVRP.findBestIntraRelocationMove(solution);
+                InterRelocationMove interRelocationMove = interLocalSearchVRP.findBestInterRelocationMove(solution);
+
+                if (intraRelocationMove.getCost() >= 0 && interRelocationMove.getCost() >= 0)
+                    break;
+
+                if (interRelocationMove.getCost() < intraRelocationMove.getCost()) {
+                    interLocalSearchVRP.applyInterRelocationMove(solution, interRelocationMove);
+                    listMoves.append(describe(interRelocationMove));
+                } else {
+                    intraLocalSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove);
+                    listMoves.append(describe(intraRelocationMove));
+                }
+
+                listIterations++;
+            }
+
+            long listTime = System.nanoTime() - start;
+
+            // The array-backed search
+            ArraySolution arraySolution = new ArraySolution(initialSolution, greedyVRP.getDistanceMatrix());
+            StringBuilder arrayMoves = new StringBuilder();
+
+            start = System.nanoTime();
+            int arrayIterations = 0;
+
+            while (true) {
+                IntraRelocationMove intraRelocationMove = intraLocalSearchVRP.findBestIntraRelocationMove(arraySolution);
+                InterRelocationMove interRelocationMove = interLocalSearchVRP.findBestInterRelocationMove(arraySolution);
+
+                if (intraRelocationMove.getCost() >= 0 && interRelocationMove.getCost() >= 0)
+                    break;
+
+                if (interRelocationMove.getCost() < intraRelocationMove.getCost()) {
+                    interLocalSearchVRP.applyInterRelocationMove(arraySolution, interRelocationMove);
+                    arrayMoves.append(describe(interRelocationMove));
+                } else {
+                    intraLocalSearchVRP.applyIntraRelocationMove(arraySolution, intraRelocationMove);
+                    arrayMoves.append(describe(intraRelocationMove));
+                }
+
+                arrayIterations++;
+            }
+
+            long arrayTime = System.nanoTime() - start;
+
+            if (!listMoves.toString().equals(arrayMoves.toString()))
+                throw new IllegalStateException(size + " customers: the two searches applied different moves");
+
+            if (Math.abs(solution.getTotalCost() - arraySolution.getTotalCost()) > 1e-6)
+                throw new IllegalStateException(size + " customers: the costs differ, " + solution.getTotalCost() +
+                        " and " + arraySolution.getTotalCost());
+
+            System.out.printf("%d customers - Solution: %.0f (%d moves, %.1f ms) - ArraySolution: %.0f (%d moves, " +
+                            "%.1f ms) - %.1fx%n", size, solution.getTotalCost(), listIterations, listTime / 1e6,
+                    arraySolution.getTotalCost(), arrayIterations, arrayTime / 1e6, (double) listTime / arrayTime);
+        }
+    }
+
+    private static String describe(IntraRelocationMove move) {
+        return "intra " + move.getRoute() + " " + move.getCustomerPosition() + " " + move.getRelocationPosition() + "\n";
+    }
+
+    private static String describe(InterRelocationMove move) {
+        return "inter " + move.getRouteFrom() + " " + move.getCustomerPosition() + " " + move.getRouteTo() + " " +
+                move.getRelocationPosition() + "\n";
+    }
+}
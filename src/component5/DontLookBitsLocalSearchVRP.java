@@ -0,0 +1,262 @@
+package component5;
+
+import component1.ArraySolution;
+import component2.DistanceMatrix;
+import component2.NeighborLists;
+
+/**
+ * A local search driver that combines intra-route and inter-route relocation moves, but does not rescan the whole
+ * neighborhood after every applied move.
+ *
+ * Every customer has a "don't-look bit". A customer whose best relocation does not improve the solution gets its bit
+ * set and is skipped from then on, until one of the arcs next to it changes. The routes that contain customers to be
+ * checked are kept in a queue of dirty routes. After a move, only the two modified routes are queued again, and only
+ * the customers at the ends of the removed and inserted arcs get their bits cleared. The search stops when the queue
+ * becomes empty.
+ */
+public class DontLookBitsLocalSearchVRP {
+
+    /**
+     * TOLERANCE: a very small positive value, so that zero-cost moves caused by rounding errors are not applied
+     */
+    private static final double TOLERANCE = 0.000001;
+
+    /**
+     * The distance matrix
+     */
+    private DistanceMatrix distanceMatrix;
+
+    /**
+     * The nearest neighbors of every node. If they are given, a customer is only considered for insertion next to one
+     * of its nearest neighbors.
+     */
+    private NeighborLists neighborLists;
+
+    /**
+     * The don't-look bit of every customer, indexed by id.
+     */
+    private boolean[] dontLook;
+
+    /**
+     * The queue of dirty routes, as a ring buffer. A route is in the queue at most once.
+     */
+    private int[] queue;
+
+    /**
+     * The position of the first route of the queue and the number of routes in it.
+     */
+    private int queueHead, queueSize;
+
+    /**
+     * Whether every route is currently in the queue.
+     */
+    private boolean[] queued;
+
+    /**
+     * The best relocation found for the customer under evaluation: its destination route, the position after which
+     * it will be inserted and the change in the cost of the solution.
+     */
+    private int bestRoute, bestPosition;
+    private double bestCost;
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix
+     */
+    public DontLookBitsLocalSearchVRP(DistanceMatrix distanceMatrix) {
+        this(distanceMatrix, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix
+     * @param neighborLists The nearest neighbors of every node, or null to try every position
+     */
+    public DontLookBitsLocalSearchVRP(DistanceMatrix distanceMatrix, NeighborLists neighborLists) {
+        this.distanceMatrix = distanceMatrix;
+        this.neighborLists = neighborLists;
+    }
+
+    /**
+     * Improves a solution with relocation moves, until no customer that may still be improved is left.
+     *
+     * @param solution The solution to improve
+     * @return The number of moves applied
+     */
+    public int improve(ArraySolution solution) {
+        int routes = solution.getNumberOfRoutes();
+
+        this.dontLook = new boolean[this.distanceMatrix.getSize()];
+        this.queue = new int[routes];
+        this.queued = new boolean[routes];
+        this.queueHead = 0;
+        this.queueSize = 0;
+
+        // In the beginning every route is dirty
+        for (int r = 0; r < routes; r++) {
+            this.enqueue(r);
+        }
+
+        int moves = 0;
+
+        while (this.queueSize > 0) {
+            int route = this.dequeue();
+
+            // Loop for every customer of the route that may still be improved
+            for (int j = 1; j < solution.getRouteSize(route) - 1; j++) {
+                int customer = solution.getNode(route, j);
+
+                if (this.dontLook[customer])
+                    continue;
+
+                this.findBestRelocation(solution, route, j);
+
+                // Nothing to gain by moving this customer, do not look at it again until its surroundings change
+                if (this.bestCost >= -TOLERANCE) {
+                    this.dontLook[customer] = true;
+                    continue;
+                }
+
+                this.applyBestRelocation(solution, route, j);
+                moves++;
+
+                // The positions of the route have changed, it has been queued again and will be scanned from the start.
+                break;
+            }
+        }
+
+        return moves;
+    }
+
+    /**
+     * Finds the best relocation of the customer in position j of the given route, into any route.
+     */
+    private void findBestRelocation(ArraySolution solution, int route, int j) {
+        int predecessor = solution.getNode(route, j - 1);
+        int customer = solution.getNode(route, j);
+        int successor = solution.getNode(route, j + 1);
+
+        this.bestCost = Double.MAX_VALUE;
+        this.bestRoute = -1;
+        this.bestPosition = -1;
+
+        // The change in the cost of the origin route, if the customer is taken out of it
+        double removalCost = this.distanceMatrix.getDistance(predecessor, successor) -
+                this.distanceMatrix.getDistance(predecessor, customer) -
+                this.distanceMatrix.getDistance(customer, successor);
+
+        // Try every position of every route
+        if (this.neighborLists == null) {
+            for (int k = 0; k < solution.getNumberOfRoutes(); k++) {
+                for (int l = 0; l < solution.getRouteSize(k) - 1; l++) {
+                    this.evaluateInsertion(solution, route, j, k, l, customer, removalCost);
+                }
+            }
+            return;
+        }
+
+        // Try both sides of every near neighbor of the customer
+        for (int n = 0; n < this.neighborLists.getK(); n++) {
+            int neighbor = this.neighborLists.getNeighbor(customer, n);
+
+            // The depot is at both ends of every route, so the customer can be placed first or last in any route.
+            if (neighbor == 0) {
+                for (int k = 0; k < solution.getNumberOfRoutes(); k++) {
+                    this.evaluateInsertion(solution, route, j, k, 0, customer, removalCost);
+                    this.evaluateInsertion(solution, route, j, k, solution.getRouteSize(k) - 2, customer, removalCost);
+                }
+            } else if (solution.getRouteOf(neighbor) != -1) {
+                // A neighbor that no route serves gives no position to insert the customer at.
+                int k = solution.getRouteOf(neighbor);
+                this.evaluateInsertion(solution, route, j, k, solution.getPositionOf(neighbor), customer, removalCost);
+                this.evaluateInsertion(solution, route, j, k, solution.getPositionOf(neighbor) - 1, customer, removalCost);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the insertion of the customer in position j of route i, after the node in position l of route k.
+     */
+    private void evaluateInsertion(ArraySolution solution, int i, int j, int k, int l, int customer, double removalCost) {
+
+        // The customer is already there
+        if (i == k && (l == j || l == j - 1))
+            return;
+
+        // If the demand of the relocated customer cannot be served by the new vehicle, ignore the move
+        if (i != k && solution.getLoad(k) + solution.getDemand(customer) > solution.getCapacity(k))
+            return;
+
+        int after = solution.getNode(k, l);
+        int afterSuccessor = solution.getNode(k, l + 1);
+
+        double cost = removalCost +
+                this.distanceMatrix.getDistance(after, customer) +
+                this.distanceMatrix.getDistance(customer, afterSuccessor) -
+                this.distanceMatrix.getDistance(after, afterSuccessor);
+
+        if (cost < this.bestCost) {
+            this.bestCost = cost;
+            this.bestRoute = k;
+            this.bestPosition = l;
+        }
+    }
+
+    /**
+     * Applies the best relocation found for the customer in position j of the given route, then queues the modified
+     * routes and clears the bits of the customers at the ends of the changed arcs.
+     */
+    private void applyBestRelocation(ArraySolution solution, int route, int j) {
+        int customer = solution.getNode(route, j);
+
+        // The ends of the removed arcs (predecessor, customer) and (customer, successor) and of the new arc
+        // (predecessor, successor).
+        this.wake(solution.getNode(route, j - 1));
+        this.wake(solution.getNode(route, j + 1));
+
+        // The ends of the removed arc (after, afterSuccessor).
+        this.wake(solution.getNode(this.bestRoute, this.bestPosition));
+        this.wake(solution.getNode(this.bestRoute, this.bestPosition + 1));
+
+        // Insert the customer right after the node in position "bestPosition" (counted before the removal)
+        if (route == this.bestRoute && j < this.bestPosition)
+            solution.relocate(route, j, this.bestRoute, this.bestPosition);
+        else
+            solution.relocate(route, j, this.bestRoute, this.bestPosition + 1);
+
+        // The customer itself is at the end of the new arcs (after, customer) and (customer, afterSuccessor).
+        this.wake(customer);
+
+        this.enqueue(route);
+        this.enqueue(this.bestRoute);
+    }
+
+    /**
+     * Clears the don't-look bit of a node. The depot has no bit of its own.
+     */
+    private void wake(int node) {
+        if (node != 0)
+            this.dontLook[node] = false;
+    }
+
+    private void enqueue(int route) {
+        if (this.queued[route])
+            return;
+
+        this.queued[route] = true;
+        this.queue[(this.queueHead + this.queueSize) % this.queue.length] = route;
+        this.queueSize++;
+    }
+
+    private int dequeue() {
+        int route = this.queue[this.queueHead];
+
+        this.queued[route] = false;
+        this.queueHead = (this.queueHead + 1) % this.queue.length;
+        this.queueSize--;
+
+        return route;
+    }
+}
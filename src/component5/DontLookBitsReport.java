@@ -0,0 +1,110 @@
+package component5;
+
+import component1.ArraySolution;
+import component2.DistanceMatrix;
+import component2.NeighborLists;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+import component4.IntraLocalSearchVRP;
+import component4.IntraRelocationMove;
+
+/**
+ * Improves the greedy solution of instances of increasing size once with the local search of TestComponent5, which
+ * rescans every relocation after every move, and once with the don't-look bits, which only rescans the customers next
+ * to the arcs that a move changed. Both run exhaustively and on the 10 nearest neighbors of every customer.
+ *
+ * The full rescans apply the best move of the whole solution, the don't-look bits the best move of the first customer
+ * that can be improved, so they may end in different local optima: the report prints both costs, moves and running
+ * times, and checks that every search ends with feasible routes whose cost is the one it kept up to date.
+ */
+class DontLookBitsReport {
+
+    /**
+     * The number of nearest neighbors of the granular searches.
+     */
+    private static final int NEIGHBORS = 10;
+
+    public static void main(String[] args) {
+        for (int size: new int[]{30, 200, 500}) {
+            GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, size, size));
+            ArraySolution initialSolution = new ArraySolution(greedyVRP.findSolution(), greedyVRP.getDistanceMatrix());
+            NeighborLists neighborLists = new NeighborLists(greedyVRP.getDistanceMatrix(), NEIGHBORS);
+
+            System.out.printf("%d customers - greedy: %.0f%n", size, initialSolution.getTotalCost());
+
+            for (boolean granular: new boolean[]{false, true}) {
+                IntraLocalSearchVRP intraLocalSearchVRP = granular
+                        ? new IntraLocalSearchVRP(greedyVRP.getDistanceMatrix(), neighborLists)
+                        : new IntraLocalSearchVRP(greedyVRP.getDistanceMatrix());
+                InterLocalSearchVRP interLocalSearchVRP = granular
+                        ? new InterLocalSearchVRP(greedyVRP.getDistanceMatrix(), neighborLists)
+                        : new InterLocalSearchVRP(greedyVRP.getDistanceMatrix());
+                DontLookBitsLocalSearchVRP dontLookBitsLocalSearchVRP = granular
+                        ? new DontLookBitsLocalSearchVRP(greedyVRP.getDistanceMatrix(), neighborLists)
+                        : new DontLookBitsLocalSearchVRP(greedyVRP.getDistanceMatrix());
+
+                // The full rescans
+                ArraySolution solution = new ArraySolution(initialSolution.toSolution(), greedyVRP.getDistanceMatrix());
+
+                long start = System.nanoTime();
+                int rescanMoves = 0;
+
+                while (true) {
+                    IntraRelocationMove intraRelocationMove = intraLocalSearchVRP.findBestIntraRelocationMove(solution);
+                    InterRelocationMove interRelocationMove = interLocalSearchVRP.findBestInterRelocationMove(solution);
+
+                    if (intraRelocationMove.getCost() >= 0 && interRelocationMove.getCost() >= 0)
+                        break;
+
+                    if (interRelocationMove.getCost() < intraRelocationMove.getCost())
+                        interLocalSearchVRP.applyInterRelocationMove(solution, interRelocationMove);
+                    else
+                        intraLocalSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove);
+
+                    rescanMoves++;
+                }
+
+                long rescanTime = System.nanoTime() - start;
+
+                // The don't-look bits
+                ArraySolution dontLookSolution = new ArraySolution(initialSolution.toSolution(),
+                        greedyVRP.getDistanceMatrix());
+
+                start = System.nanoTime();
+                int dontLookMoves = dontLookBitsLocalSearchVRP.improve(dontLookSolution);
+                long dontLookTime = System.nanoTime() - start;
+
+                check(size, solution, greedyVRP.getDistanceMatrix());
+                check(size, dontLookSolution, greedyVRP.getDistanceMatrix());
+
+                System.out.printf("  %s - full rescans: %.0f (%d moves, %.1f ms) - don't-look bits: %.0f (%d moves, " +
+                                "%.1f ms) - %.1fx%n", granular ? "granular" : "exhaustive", solution.getTotalCost(),
+                        rescanMoves, rescanTime / 1e6, dontLookSolution.getTotalCost(), dontLookMoves,
+                        dontLookTime / 1e6, (double) rescanTime / dontLookTime);
+            }
+        }
+    }
+
+    /**
+     * Checks that the cost that a search kept up to date is the cost of its routes, and that no route is overloaded.
+     */
+    private static void check(int size, ArraySolution solution, DistanceMatrix distanceMatrix) {
+        double cost = 0;
+
+        for (int r = 0; r < solution.getNumberOfRoutes(); r++) {
+            int load = 0;
+
+            for (int p = 0; p < solution.getRouteSize(r) - 1; p++) {
+                cost += distanceMatrix.getDistance(solution.getNode(r, p), solution.getNode(r, p + 1));
+                load += solution.getDemand(solution.getNode(r, p));
+            }
+
+            if (load > solution.getCapacity(r))
+                throw new IllegalStateException(size + " customers: route " + r + " is overloaded, " + load);
+        }
+
+        if (Math.abs(cost - solution.getTotalCost()) > 1e-6)
+            throw new IllegalStateException(size + " customers: the cost " + solution.getTotalCost() +
+                    " is not the cost of the routes, " + cost);
+    }
+}
@@ -1,7 +1,19 @@
 package component5;
 
+import component1.ArraySolution;
 import component1.Node;
 import component1.Solution;
+import component2.DistanceMatrix;
+import component2.NeighborLists;
+import metrics.SearchMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * @author Stamatis Pitsios
@@ -14,15 +26,98 @@ class InterLocalSearchVRP {
     /**
      * The distance matrix
      */
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
+
+    /**
+     * The nearest neighbors of every node. If they are given, the search runs in "granular" mode: a customer is only
+     * considered for insertion next to one of its nearest neighbors.
+     */
+    private NeighborLists neighborLists;
+
+    /**
+     * The position of every customer within its route, indexed by customer id. Only used in granular mode.
+     */
+    private int[] positionOf;
+
+    /**
+     * The route of every customer, indexed by customer id. Only used in granular mode.
+     */
+    private int[] routeOf;
+
+    /**
+     * The capacity that every route has left, refilled in place at the start of every search.
+     */
+    private int[] residualCapacities;
+
+    /**
+     * The pool of threads that evaluate the neighborhood in parallel. If it is null, the search runs on the calling
+     * thread.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The number of threads of the pool.
+     */
+    private int parallelism = 1;
+
+    /**
+     * The metrics that the searches report to, or null.
+     */
+    private SearchMetrics metrics;
+
+    /**
+     * The number of moves evaluated and rejected by capacity by the current sequential search, which are added to
+     * the metrics once it ends. The parallel search counts per thread instead.
+     */
+    private long evaluated, capacityRejections;
 
     /**
      * Default Constructor
      */
-    InterLocalSearchVRP(double[][] distanceMatrix) {
+    InterLocalSearchVRP(DistanceMatrix distanceMatrix) {
         this.distanceMatrix = distanceMatrix;
     }
 
+    /**
+     * Constructor for the parallel mode. The origin routes of the exhaustive neighborhood are split among the given
+     * number of threads.
+     *
+     * @param distanceMatrix The distance matrix
+     * @param parallelism The number of threads that will evaluate the neighborhood
+     */
+    InterLocalSearchVRP(DistanceMatrix distanceMatrix, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+        this.distanceMatrix = distanceMatrix;
+        this.parallelism = parallelism;
+
+        if (parallelism > 1)
+            this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Constructor for the granular mode.
+     *
+     * @param distanceMatrix The distance matrix
+     * @param neighborLists The nearest neighbors of every node
+     */
+    InterLocalSearchVRP(DistanceMatrix distanceMatrix, NeighborLists neighborLists) {
+        this.distanceMatrix = distanceMatrix;
+        this.neighborLists = neighborLists;
+        this.positionOf = new int[distanceMatrix.getSize()];
+        this.routeOf = new int[distanceMatrix.getSize()];
+    }
+
+    /**
+     * Sets the metrics that the searches report the number of evaluated and rejected moves to.
+     *
+     * @param metrics The metrics, or null for none.
+     */
+    void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Finds the best possible neighbor of a given solution, by checking all possible inter-route relocation moves.
      *
@@ -31,11 +126,39 @@ class InterLocalSearchVRP {
      */
     InterRelocationMove findBestInterRelocationMove(Solution solution) {
 
+        if (this.neighborLists != null)
+            return findBestGranularInterRelocationMove(solution);
+
+        // The residual capacities are read for every customer and route, so they are copied into an array once.
+        int[] residualCapacities = this.residualCapacities = solution.getResidualCapacities(this.residualCapacities);
+
+        if (this.pool != null)
+            return findBestParallelInterRelocationMove(solution, residualCapacities);
+
+        return findBestInterRelocationMove(solution, residualCapacities, 0, solution.getRoutes().size());
+    }
+
+    /**
+     * Finds the best inter-route relocation move that takes a customer out of one of the routes in [firstRoute,
+     * lastRoute). Among moves of equal cost, the first one in (route, customer, route, position) order is kept.
+     *
+     * @param solution The solution which we want to improve
+     * @param residualCapacities The capacity that every route has left
+     * @param firstRoute The first origin route to be checked
+     * @param lastRoute The origin route after the last one to be checked
+     * @return InterRelocationMove the best possible inter relocation move out of these routes
+     */
+    private InterRelocationMove findBestInterRelocationMove(Solution solution, int[] residualCapacities, int firstRoute,
+                                                           int lastRoute) {
+
         // The best inter-relocation move found so far.
         InterRelocationMove move = new InterRelocationMove();
 
-        // Loop for every route of the solution
-        for (int i = 0; i < solution.getRoutes().size(); i++) {
+        // The ranges may be searched in parallel, so every one of them keeps its own counts.
+        long evaluated = 0, capacityRejections = 0;
+
+        // Loop for every route of the given range
+        for (int i = firstRoute; i < lastRoute; i++) {
 
             // Loop for every customer within the i-th route
             for (int j = 1; j < solution.getRoutes().get(i).getRoute().size() - 1; j++) {
@@ -57,9 +180,10 @@ class InterLocalSearchVRP {
                         continue;
 
                     // If the demand of the relocated customer cannot be served by the new vehicle, continue with the next one
-                    if (solution.getRoutes().get(k).getLoad() + relocatedCustomer.getDemand() >
-                            solution.getRoutes().get(k).getCapacity())
+                    if (residualCapacities[k] < relocatedCustomer.getDemand()) {
+                        capacityRejections += solution.getRoutes().get(k).getRoute().size() - 1;
                         continue;
+                    }
 
                     // Loop for every customer within the second route
                     for (int l = 0; l < solution.getRoutes().get(k).getRoute().size() - 1; l++) {
@@ -70,26 +194,27 @@ class InterLocalSearchVRP {
                         Node afterSuccessor = solution.getRoutes().get(k).getRoute().get(l + 1);
 
                         // Calculate the cost of the solution, if we apply the specific relocation move.
-                        double costRemoved = this.distanceMatrix[predecessor.getId()][relocatedCustomer.getId()] +
-                                this.distanceMatrix[relocatedCustomer.getId()][successor.getId()] +
-                                this.distanceMatrix[after.getId()][afterSuccessor.getId()];
+                        double costRemoved = this.distanceMatrix.getDistance(predecessor.getId(), relocatedCustomer.getId()) +
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), successor.getId()) +
+                                this.distanceMatrix.getDistance(after.getId(), afterSuccessor.getId());
 
-                        double costAdded = this.distanceMatrix[after.getId()][relocatedCustomer.getId()] +
-                                this.distanceMatrix[relocatedCustomer.getId()][afterSuccessor.getId()] +
-                                this.distanceMatrix[predecessor.getId()][successor.getId()];
+                        double costAdded = this.distanceMatrix.getDistance(after.getId(), relocatedCustomer.getId()) +
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), afterSuccessor.getId()) +
+                                this.distanceMatrix.getDistance(predecessor.getId(), successor.getId());
 
                         // The new cost within route i
-                        double costI = this.distanceMatrix[predecessor.getId()][successor.getId()] -
-                                this.distanceMatrix[predecessor.getId()][relocatedCustomer.getId()] -
-                                this.distanceMatrix[relocatedCustomer.getId()][successor.getId()];
+                        double costI = this.distanceMatrix.getDistance(predecessor.getId(), successor.getId()) -
+                                this.distanceMatrix.getDistance(predecessor.getId(), relocatedCustomer.getId()) -
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), successor.getId());
 
                         // The new cost within route l
-                        double costL = this.distanceMatrix[after.getId()][relocatedCustomer.getId()] +
-                                this.distanceMatrix[relocatedCustomer.getId()][afterSuccessor.getId()] -
-                                this.distanceMatrix[after.getId()][afterSuccessor.getId()];
+                        double costL = this.distanceMatrix.getDistance(after.getId(), relocatedCustomer.getId()) +
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), afterSuccessor.getId()) -
+                                this.distanceMatrix.getDistance(after.getId(), afterSuccessor.getId());
 
                         // The difference in the cost of the final solution
                         double newCost = costAdded - costRemoved;
+                        evaluated++;
 
                         // If the move is the best found so far, store the move.
                         if (newCost < move.getCost()) {
@@ -106,10 +231,342 @@ class InterLocalSearchVRP {
             }
         }
 
+        if (this.metrics != null) {
+            this.metrics.add(SearchMetrics.Counter.MOVES_EVALUATED, evaluated);
+            this.metrics.add(SearchMetrics.Counter.CAPACITY_REJECTIONS, capacityRejections);
+        }
+
+        // Return the move.
+        return move;
+    }
+
+    /**
+     * Finds the best inter-route relocation move by splitting the origin routes into consecutive ranges that are
+     * searched in parallel. The best moves of the ranges are then compared in the order of the ranges, keeping the
+     * first one on ties, so the result is exactly the move that the sequential search would find.
+     *
+     * @param solution The solution which we want to improve. It must not be modified during the search.
+     * @param residualCapacities The capacity that every route has left
+     * @return InterRelocationMove the best possible inter relocation move
+     */
+    private InterRelocationMove findBestParallelInterRelocationMove(final Solution solution,
+                                                                    final int[] residualCapacities) {
+        int routes = solution.getRoutes().size();
+
+        // A few ranges per thread, so that a thread that gets long routes does not keep the others waiting.
+        int ranges = Math.min(routes, this.parallelism * 4);
+
+        List<Callable<InterRelocationMove>> tasks = new ArrayList<>();
+        for (int r = 0; r < ranges; r++) {
+            final int firstRoute = (int) ((long) routes * r / ranges);
+            final int lastRoute = (int) ((long) routes * (r + 1) / ranges);
+
+            tasks.add(new Callable<InterRelocationMove>() {
+                @Override
+                public InterRelocationMove call() {
+                    return findBestInterRelocationMove(solution, residualCapacities, firstRoute, lastRoute);
+                }
+            });
+        }
+
+        // The best inter-relocation move found so far.
+        InterRelocationMove move = new InterRelocationMove();
+
+        try {
+            for (Future<InterRelocationMove> result: this.pool.invokeAll(tasks)) {
+                InterRelocationMove candidate = result.get();
+
+                // Strictly better only, so that ties are resolved in favor of the earlier range.
+                if (candidate.getCost() < move.getCost())
+                    move = candidate;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching the inter-route neighborhood", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to search the inter-route neighborhood", e.getCause());
+        }
+
         // Return the move.
         return move;
     }
 
+    /**
+     * Stops the threads of the parallel mode, if any.
+     */
+    void shutdown() {
+        if (this.pool != null)
+            this.pool.shutdown();
+    }
+
+    /**
+     * Finds the best inter-route relocation move, considering only the moves that insert a customer right after or
+     * right before one of its nearest neighbors.
+     *
+     * @param solution The solution which we want to improve
+     * @return InterRelocationMove the best possible granular inter relocation move
+     */
+    private InterRelocationMove findBestGranularInterRelocationMove(Solution solution) {
+
+        // The best inter-relocation move found so far.
+        InterRelocationMove move = new InterRelocationMove();
+
+        int[] residualCapacities = this.residualCapacities = solution.getResidualCapacities(this.residualCapacities);
+
+        // Index the position of every customer, so that the neighbors can be located in O(1). The customers that no
+        // route serves, e.g. the ones of another solution searched before, are left at -1.
+        Arrays.fill(this.routeOf, -1);
+        Arrays.fill(this.positionOf, -1);
+
+        for (int i = 0; i < solution.getRoutes().size(); i++) {
+            List<Node> route = solution.getRoutes().get(i).getRoute();
+
+            for (int j = 1; j < route.size() - 1; j++) {
+                this.routeOf[route.get(j).getId()] = i;
+                this.positionOf[route.get(j).getId()] = j;
+            }
+        }
+
+        // Loop for every route of the solution
+        for (int i = 0; i < solution.getRoutes().size(); i++) {
+
+            // Loop for every customer within the i-th route
+            for (int j = 1; j < solution.getRoutes().get(i).getRoute().size() - 1; j++) {
+                int relocatedCustomer = solution.getRoutes().get(i).getRoute().get(j).getId();
+
+                // Loop for every near neighbor of the customer
+                for (int n = 0; n < this.neighborLists.getK(); n++) {
+                    int neighbor = this.neighborLists.getNeighbor(relocatedCustomer, n);
+
+                    // The depot is at both ends of every route, so the customer can be placed first or last in any other route.
+                    if (neighbor == 0) {
+                        for (int k = 0; k < solution.getRoutes().size(); k++) {
+                            evaluateInterRelocationMove(solution, i, j, k, 0, residualCapacities[k], move);
+                            evaluateInterRelocationMove(solution, i, j, k, solution.getRoutes().get(k).getRoute().size() - 2,
+                                    residualCapacities[k], move);
+                        }
+                    }
+
+                    // Otherwise try both sides of the neighbor, within its own route, if any route serves it.
+                    else if (this.routeOf[neighbor] != -1) {
+                        int k = this.routeOf[neighbor];
+                        evaluateInterRelocationMove(solution, i, j, k, this.positionOf[neighbor], residualCapacities[k], move);
+                        evaluateInterRelocationMove(solution, i, j, k, this.positionOf[neighbor] - 1, residualCapacities[k],
+                                move);
+                    }
+                }
+            }
+        }
+
+        report();
+
+        // Return the move.
+        return move;
+    }
+
+    /**
+     * Finds the best relocation of a customer of route i into route k.
+     *
+     * @param solution The solution which we want to improve
+     * @param i The origin route
+     * @param k The destination route
+     * @return InterRelocationMove the best possible relocation move from route i to route k
+     */
+    InterRelocationMove findBestInterRelocationMoveBetween(Solution solution, int i, int k) {
+
+        // The best inter-relocation move found so far.
+        InterRelocationMove move = new InterRelocationMove();
+
+        int residualCapacity = solution.getRoutes().get(k).getCapacity() - solution.getRoutes().get(k).getLoad();
+
+        // Loop for every customer of route i and every position of route k
+        for (int j = 1; j < solution.getRoutes().get(i).getRoute().size() - 1; j++) {
+            for (int l = 0; l < solution.getRoutes().get(k).getRoute().size() - 1; l++) {
+                evaluateInterRelocationMove(solution, i, j, k, l, residualCapacity, move);
+            }
+        }
+
+        report();
+        return move;
+    }
+
+    /**
+     * Evaluates the relocation of the customer in position j of route i after the customer in position l of route k
+     * and stores it in "move" if it is the best found so far. Route k has the given capacity left.
+     */
+    private void evaluateInterRelocationMove(Solution solution, int i, int j, int k, int l, int residualCapacity,
+                                             InterRelocationMove move) {
+
+        // If the 2 routes are the same, ignore them, since this is the case of intra relocation
+        if (i == k)
+            return;
+
+        List<Node> originRoute = solution.getRoutes().get(i).getRoute();
+        List<Node> destinationRoute = solution.getRoutes().get(k).getRoute();
+
+        // If the demand of the relocated customer cannot be served by the new vehicle, ignore the move
+        if (originRoute.get(j).getDemand() > residualCapacity) {
+            this.capacityRejections++;
+            return;
+        }
+
+        evaluateInterRelocationMove(i, j, k, l, originRoute.get(j - 1).getId(), originRoute.get(j).getId(),
+                originRoute.get(j + 1).getId(), destinationRoute.get(l).getId(), destinationRoute.get(l + 1).getId(), move);
+    }
+
+    /**
+     * Evaluates the relocation of the customer in position j of route i after the customer in position l of route k,
+     * given the ids of the nodes involved, and stores it in "move" if it is the best found so far.
+     */
+    private void evaluateInterRelocationMove(int i, int j, int k, int l, int predecessor, int relocatedCustomer,
+                                             int successor, int after, int afterSuccessor, InterRelocationMove move) {
+
+        // The new cost within route i
+        double costI = this.distanceMatrix.getDistance(predecessor, successor) -
+                this.distanceMatrix.getDistance(predecessor, relocatedCustomer) -
+                this.distanceMatrix.getDistance(relocatedCustomer, successor);
+
+        // The new cost within route k
+        double costL = this.distanceMatrix.getDistance(after, relocatedCustomer) +
+                this.distanceMatrix.getDistance(relocatedCustomer, afterSuccessor) -
+                this.distanceMatrix.getDistance(after, afterSuccessor);
+
+        // The difference in the cost of the final solution
+        double newCost = costI + costL;
+        this.evaluated++;
+
+        // If the move is the best found so far, store the move. The destination routes of a customer may be visited
+        // in any order, so on ties the smaller destination route wins, exactly like in the sequential route order.
+        if (newCost < move.getCost() || (newCost == move.getCost() && i == move.getRouteFrom() &&
+                j == move.getCustomerPosition() && k < move.getRouteTo())) {
+            move.setCost(newCost);
+            move.setRouteFrom(i);
+            move.setRouteTo(k);
+            move.setCustomerPosition(j);
+            move.setRelocationPosition(l);
+            move.setOriginCost(costI);
+            move.setDestinationCost(costL);
+        }
+    }
+
+    /**
+     * Finds the best possible neighbor of a given array-backed solution, by checking all possible inter-route
+     * relocation moves (or only the granular ones, if nearest neighbors are given).
+     *
+     * @param solution The solution which we want to improve
+     * @return InterRelocationMove the best possible inter relocation move
+     */
+    InterRelocationMove findBestInterRelocationMove(ArraySolution solution) {
+
+        // The best inter-relocation move found so far.
+        InterRelocationMove move = new InterRelocationMove();
+
+        // Loop for every route of the solution
+        for (int i = 0; i < solution.getNumberOfRoutes(); i++) {
+
+            // Loop for every customer within the i-th route
+            for (int j = 1; j < solution.getRouteSize(i) - 1; j++) {
+                int predecessor = solution.getNode(i, j - 1);
+                int relocatedCustomer = solution.getNode(i, j);
+                int successor = solution.getNode(i, j + 1);
+                int demand = solution.getDemand(relocatedCustomer);
+
+                // Exhaustive mode: loop for every other route and every position within it. Only the buckets of
+                // routes with enough residual capacity are visited, the full routes are skipped as a whole.
+                if (this.neighborLists == null) {
+                    long buckets = solution.getBucketsThatFit(demand);
+
+                    while (buckets != 0) {
+                        int bucket = Long.numberOfTrailingZeros(buckets);
+                        buckets &= buckets - 1;
+
+                        for (int k = solution.getFirstRouteInBucket(bucket); k != -1; k = solution.getNextRouteInBucket(k)) {
+
+                            // Same route, or the demand of the relocated customer cannot be served by the new vehicle
+                            if (i == k)
+                                continue;
+
+                            if (solution.getResidualCapacity(k) < demand) {
+                                this.capacityRejections += solution.getRouteSize(k) - 1;
+                                continue;
+                            }
+
+                            for (int l = 0; l < solution.getRouteSize(k) - 1; l++) {
+                                evaluateInterRelocationMove(i, j, k, l, predecessor, relocatedCustomer, successor,
+                                        solution.getNode(k, l), solution.getNode(k, l + 1), move);
+                            }
+                        }
+                    }
+                    continue;
+                }
+
+                // Granular mode: loop for every near neighbor of the customer
+                for (int n = 0; n < this.neighborLists.getK(); n++) {
+                    int neighbor = this.neighborLists.getNeighbor(relocatedCustomer, n);
+
+                    // A neighbor that no route serves gives no position to insert the customer at.
+                    if (neighbor != 0 && solution.getRouteOf(neighbor) == -1)
+                        continue;
+
+                    // The depot is at both ends of every route, so the customer can be placed first or last in any other route.
+                    int firstRoute = neighbor == 0 ? 0 : solution.getRouteOf(neighbor);
+                    int lastRoute = neighbor == 0 ? solution.getNumberOfRoutes() - 1 : solution.getRouteOf(neighbor);
+
+                    for (int k = firstRoute; k <= lastRoute; k++) {
+
+                        // Same route, or the demand of the relocated customer cannot be served by the new vehicle
+                        if (i == k)
+                            continue;
+
+                        if (solution.getResidualCapacity(k) < demand) {
+                            this.capacityRejections += 2;
+                            continue;
+                        }
+
+                        int first = neighbor == 0 ? 0 : solution.getPositionOf(neighbor) - 1;
+                        int second = neighbor == 0 ? solution.getRouteSize(k) - 2 : solution.getPositionOf(neighbor);
+
+                        // Try both sides of the neighbor
+                        for (int side = 0; side < 2; side++) {
+                            int l = side == 0 ? first : second;
+
+                            evaluateInterRelocationMove(i, j, k, l, predecessor, relocatedCustomer, successor,
+                                    solution.getNode(k, l), solution.getNode(k, l + 1), move);
+                        }
+                    }
+                }
+            }
+        }
+
+        report();
+
+        // Return the move.
+        return move;
+    }
+
+    /**
+     * Adds the counts of the sequential search that just ended to the metrics, if any.
+     */
+    private void report() {
+        if (this.metrics != null) {
+            this.metrics.add(SearchMetrics.Counter.MOVES_EVALUATED, this.evaluated);
+            this.metrics.add(SearchMetrics.Counter.CAPACITY_REJECTIONS, this.capacityRejections);
+        }
+
+        this.evaluated = 0;
+        this.capacityRejections = 0;
+    }
+
+    /**
+     * Applies an inter-route relocation move to a given array-backed solution
+     *
+     * @param solution The solution to improve
+     * @param move The relocation move to be applied
+     */
+    void applyInterRelocationMove(ArraySolution solution, InterRelocationMove move) {
+        solution.relocate(move.getRouteFrom(), move.getCustomerPosition(), move.getRouteTo(), move.getRelocationPosition() + 1);
+    }
+
     /**
      * Applies an inter-route relocation move to a given solution
      *
@@ -0,0 +1,23 @@
+package component5;
+
+import benchmark.BenchmarkRunner;
+import component1.Solution;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+
+/**
+ * Benchmarks one sweep of the inter-route relocation neighborhood over the greedy solution.
+ */
+class InterSearchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        for (int size: BenchmarkRunner.sizes(args)) {
+            GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, size, size));
+            final Solution solution = greedyVRP.findSolution();
+            final InterLocalSearchVRP interLocalSearchVRP = new InterLocalSearchVRP(greedyVRP.getDistanceMatrix());
+
+            BenchmarkRunner.run("findBestInterRelocationMove", size,
+                    () -> interLocalSearchVRP.findBestInterRelocationMove(solution));
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package component5;
+
+import component1.Solution;
+import component4.IntraLocalSearchVRP;
+import component4.IntraRelocationMove;
+
+import java.util.Arrays;
+
+/**
+ * A cache of the best relocation moves of a solution, kept per pair of routes.
+ *
+ * For every ordered pair of different routes (a, b) the cache keeps the best move that relocates a customer of route
+ * a into route b, and for every route the best intra-route relocation move. Two priority structures (tournament trees
+ * over the cached costs) give the best inter-route and intra-route move in O(1). When a move is applied through the
+ * cache, only the entries that involve the modified routes are recomputed, and the trees are updated in O(log n)
+ * per entry. Among moves of equal cost, the one of the first pair of routes is returned.
+ */
+class RelocationMoveCache {
+
+    /**
+     * The solution whose moves are cached.
+     */
+    private final Solution solution;
+
+    /**
+     * The intra-route local search, used to evaluate the moves within one route.
+     */
+    private final IntraLocalSearchVRP intraLocalSearchVRP;
+
+    /**
+     * The inter-route local search, used to evaluate the moves between two routes.
+     */
+    private final InterLocalSearchVRP interLocalSearchVRP;
+
+    /**
+     * The number of routes.
+     */
+    private final int routes;
+
+    /**
+     * The best intra-route move of every route.
+     */
+    private final IntraRelocationMove[] intraMoves;
+
+    /**
+     * The best inter-route move of every pair of routes (a, b), in position a * routes + b.
+     */
+    private final InterRelocationMove[] interMoves;
+
+    /**
+     * The trees over the costs of the cached moves.
+     */
+    private final MinimumTree intraTree, interTree;
+
+    /**
+     * Constructor. Evaluates every move of the solution once.
+     *
+     * @param solution The solution whose moves will be cached
+     * @param intraLocalSearchVRP The intra-route local search
+     * @param interLocalSearchVRP The inter-route local search
+     */
+    RelocationMoveCache(Solution solution, IntraLocalSearchVRP intraLocalSearchVRP, InterLocalSearchVRP interLocalSearchVRP) {
+        this.solution = solution;
+        this.intraLocalSearchVRP = intraLocalSearchVRP;
+        this.interLocalSearchVRP = interLocalSearchVRP;
+        this.routes = solution.getRoutes().size();
+        this.intraMoves = new IntraRelocationMove[this.routes];
+        this.interMoves = new InterRelocationMove[this.routes * this.routes];
+        this.intraTree = new MinimumTree(this.routes);
+        this.interTree = new MinimumTree(this.routes * this.routes);
+
+        for (int a = 0; a < this.routes; a++) {
+            this.updateRoute(a);
+        }
+    }
+
+    /**
+     * Returns the best intra-route relocation move of the solution.
+     */
+    IntraRelocationMove getBestIntraRelocationMove() {
+        return this.intraMoves[this.intraTree.getMinimum()];
+    }
+
+    /**
+     * Returns the best inter-route relocation move of the solution.
+     */
+    InterRelocationMove getBestInterRelocationMove() {
+        int best = this.interTree.getMinimum();
+        InterRelocationMove move = this.interMoves[best];
+
+        // With a single route there is no pair at all.
+        return move != null ? move : new InterRelocationMove();
+    }
+
+    /**
+     * Applies an intra-route relocation move to the solution and recomputes the entries of the modified route.
+     *
+     * @param move The relocation move to be applied
+     */
+    void applyIntraRelocationMove(IntraRelocationMove move) {
+        this.intraLocalSearchVRP.applyIntraRelocationMove(this.solution, move);
+        this.invalidate(move.getRoute());
+    }
+
+    /**
+     * Applies an inter-route relocation move to the solution and recomputes the entries of the two modified routes.
+     *
+     * @param move The relocation move to be applied
+     */
+    void applyInterRelocationMove(InterRelocationMove move) {
+        this.interLocalSearchVRP.applyInterRelocationMove(this.solution, move);
+        this.invalidate(move.getRouteFrom());
+        this.invalidate(move.getRouteTo());
+    }
+
+    /**
+     * Recomputes every entry that involves the given route: its intra-route move, and the moves from it to every other
+     * route and from every other route to it.
+     */
+    private void invalidate(int a) {
+        this.intraMoves[a] = this.intraLocalSearchVRP.findBestIntraRelocationMove(this.solution, a);
+        this.intraTree.update(a, this.intraMoves[a].getCost());
+
+        for (int b = 0; b < this.routes; b++) {
+            if (a == b)
+                continue;
+
+            this.updatePair(a, b);
+            this.updatePair(b, a);
+        }
+    }
+
+    /**
+     * Computes the intra-route move of a route and its moves to every other route. Used to fill the cache.
+     */
+    private void updateRoute(int a) {
+        this.intraMoves[a] = this.intraLocalSearchVRP.findBestIntraRelocationMove(this.solution, a);
+        this.intraTree.update(a, this.intraMoves[a].getCost());
+
+        for (int b = 0; b < this.routes; b++) {
+            if (a != b)
+                this.updatePair(a, b);
+        }
+    }
+
+    /**
+     * Recomputes the best move from route a to route b.
+     */
+    private void updatePair(int a, int b) {
+        InterRelocationMove move = this.interLocalSearchVRP.findBestInterRelocationMoveBetween(this.solution, a, b);
+
+        this.interMoves[a * this.routes + b] = move;
+        this.interTree.update(a * this.routes + b, move.getCost());
+    }
+
+    /**
+     * A tournament tree over a fixed number of costs: every inner node keeps the position of the smallest cost below
+     * it (the leftmost one on ties), so the overall minimum is read from the root.
+     */
+    private static final class MinimumTree {
+
+        /**
+         * The number of leaves, a power of 2.
+         */
+        private final int leaves;
+
+        /**
+         * The cost of every leaf. Unused leaves have an infinite cost.
+         */
+        private final double[] costs;
+
+        /**
+         * The position of the smallest cost below every node. Node 1 is the root, the children of node n are 2n and
+         * 2n + 1, and the leaves are the nodes [leaves, 2 * leaves).
+         */
+        private final int[] winners;
+
+        MinimumTree(int size) {
+            int leaves = 1;
+            while (leaves < size) {
+                leaves *= 2;
+            }
+
+            this.leaves = leaves;
+            this.costs = new double[leaves];
+            this.winners = new int[2 * leaves];
+
+            Arrays.fill(this.costs, Double.POSITIVE_INFINITY);
+
+            for (int leaf = 0; leaf < leaves; leaf++) {
+                this.winners[leaves + leaf] = leaf;
+            }
+            for (int node = leaves - 1; node > 0; node--) {
+                this.winners[node] = this.winners[2 * node];
+            }
+        }
+
+        /**
+         * Changes the cost of a leaf and replays the matches up to the root.
+         */
+        void update(int leaf, double cost) {
+            this.costs[leaf] = cost;
+
+            for (int node = (this.leaves + leaf) / 2; node > 0; node /= 2) {
+                int left = this.winners[2 * node];
+                int right = this.winners[2 * node + 1];
+
+                this.winners[node] = this.costs[right] < this.costs[left] ? right : left;
+            }
+        }
+
+        /**
+         * Returns the position of the smallest cost.
+         */
+        int getMinimum() {
+            return this.winners[1];
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package component5;
+
+import component1.Solution;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+import component4.IntraLocalSearchVRP;
+import component4.IntraRelocationMove;
+
+/**
+ * Runs the local search of TestComponent5 (best intra-route or inter-route relocation, until neither improves) over
+ * the greedy solution of instances of increasing size, once with full scans and once with the RelocationMoveCache,
+ * which only recomputes the moves of the routes that the last move modified.
+ *
+ * Before every cached move, the report also scans the whole solution and checks that the cache returns moves of the
+ * same cost. Among moves of equal cost the cache and the full scan may pick different ones, so the costs are compared
+ * instead of the moves. It then prints the costs and running times of the two searches.
+ */
+class RelocationMoveCacheReport {
+
+    public static void main(String[] args) {
+        for (int size: new int[]{30, 200, 500}) {
+            GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, size, size));
+            Solution initialSolution = greedyVRP.findSolution();
+
+            IntraLocalSearchVRP intraLocalSearchVRP = new IntraLocalSearchVRP(greedyVRP.getDistanceMatrix());
+            InterLocalSearchVRP interLocalSearchVRP = new InterLocalSearchVRP(greedyVRP.getDistanceMatrix());
+
+            // The cached search, checked against a full scan before every move
+            Solution checkedSolution = initialSolution.cloneSolution();
+            RelocationMoveCache checkedCache = new RelocationMoveCache(checkedSolution, intraLocalSearchVRP,
+                    interLocalSearchVRP);
+            int checkedIterations = 0;
+
+            while (true) {
+                IntraRelocationMove intraRelocationMove = checkedCache.getBestIntraRelocationMove();
+                InterRelocationMove interRelocationMove = checkedCache.getBestInterRelocationMove();
+
+                compare(size, checkedIterations, "intra", intraRelocationMove.getCost(),
+                        intraLocalSearchVRP.findBestIntraRelocationMove(checkedSolution).getCost());
+                compare(size, checkedIterations, "inter", interRelocationMove.getCost(),
+                        interLocalSearchVRP.findBestInterRelocationMove(checkedSolution).getCost());
+
+                if (intraRelocationMove.getCost() >= 0 && interRelocationMove.getCost() >= 0)
+                    break;
+
+                if (interRelocationMove.getCost() < intraRelocationMove.getCost())
+                    checkedCache.applyInterRelocationMove(interRelocationMove);
+                else
+                    checkedCache.applyIntraRelocationMove(intraRelocationMove);
+
+                checkedIterations++;
+            }
+
+            // The full scans
+            Solution solution = initialSolution.cloneSolution();
+
+            long start = System.nanoTime();
+            int iterations = 0;
+
+            while (true) {
+                IntraRelocationMove intraRelocationMove = intraLocalSearchVRP.findBestIntraRelocationMove(solution);
+                InterRelocationMove interRelocationMove = interLocalSearchVRP.findBestInterRelocationMove(solution);
+
+                if (intraRelocationMove.getCost() >= 0 && interRelocationMove.getCost() >= 0)
+                    break;
+
+                if (interRelocationMove.getCost() < intraRelocationMove.getCost())
+                    interLocalSearchVRP.applyInterRelocationMove(solution, interRelocationMove);
+                else
+                    intraLocalSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove);
+
+                iterations++;
+            }
+
+            long time = System.nanoTime() - start;
+
+            // The cached search on its own, cache construction included
+            Solution cachedSolution = initialSolution.cloneSolution();
+
+            start = System.nanoTime();
+            RelocationMoveCache cache = new RelocationMoveCache(cachedSolution, intraLocalSearchVRP,
+                    interLocalSearchVRP);
+            int cachedIterations = 0;
+
+            while (true) {
+                IntraRelocationMove intraRelocationMove = cache.getBestIntraRelocationMove();
+                InterRelocationMove interRelocationMove = cache.getBestInterRelocationMove();
+
+                if (intraRelocationMove.getCost() >= 0 && interRelocationMove.getCost() >= 0)
+                    break;
+
+                if (interRelocationMove.getCost() < intraRelocationMove.getCost())
+                    cache.applyInterRelocationMove(interRelocationMove);
+                else
+                    cache.applyIntraRelocationMove(intraRelocationMove);
+
+                cachedIterations++;
+            }
+
+            long cachedTime = System.nanoTime() - start;
+
+            if (Math.abs(cachedSolution.getTotalCost() - checkedSolution.getTotalCost()) > 1e-6)
+                throw new IllegalStateException(size + " customers: the checked and the timed cached searches differ, "
+                        + checkedSolution.getTotalCost() + " and " + cachedSolution.getTotalCost());
+
+            System.out.printf("%d customers - %d moves checked - full scans: %.0f (%d moves, %.1f ms) - cache: %.0f " +
+                            "(%d moves, %.1f ms) - %.1fx%n", size, checkedIterations, solution.getTotalCost(),
+                    iterations, time / 1e6, cachedSolution.getTotalCost(), cachedIterations, cachedTime / 1e6,
+                    (double) time / cachedTime);
+        }
+    }
+
+    /**
+     * Checks that the cached and the scanned best moves have the same cost.
+     */
+    private static void compare(int size, int iteration, String kind, double cachedCost, double scannedCost) {
+        if (Math.abs(cachedCost - scannedCost) > 1e-6)
+            throw new IllegalStateException(size + " customers, move " + iteration + ": the cached " + kind +
+                    " move costs " + cachedCost + " but the full scan finds " + scannedCost);
+    }
+}
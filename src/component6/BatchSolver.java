@@ -0,0 +1,330 @@
+package component6;
+
+import component1.Solution;
+import component2.ProblemInitializer;
+import metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Solves batches of independent instances, e.g. the depots of a dispatch backend, at the same time.
+ *
+ * Every instance is loaded on a thread of its own and then solved by the anytime Solver on a thread of a fixed pool,
+ * which bounds the CPU that the searches use. Loading is not only I/O, it also builds the O(n^2) distance matrix, so
+ * at most two instances per solver thread are in flight at a time: it bounds the CPU of the loads and the number of
+ * matrices in memory, while the next instances are already loaded when a solver thread becomes free.
+ *
+ * There are no per-thread scratch buffers: every instance allocates its own greedy solution, working copy and best
+ * solution, since they differ in size from one instance to the next and the best solution is the result. A thread of
+ * the fixed pool only keeps its tabu search from one instance to the next, to save creating its small tabu memory.
+ */
+public class BatchSolver {
+
+    /**
+     * The tabu horizon.
+     */
+    private static final int HORIZON = 20;
+
+    /**
+     * The number of instances per solver thread that may be in flight, i.e. loaded or being loaded but not solved.
+     */
+    private static final int IN_FLIGHT_PER_SOLVER = 2;
+
+    /**
+     * The results of a batch.
+     */
+    public static final class BatchResult {
+
+        private final Solution[] solutions;
+
+        private final Throwable[] failures;
+
+        private final LatencyHistogram latencies;
+
+        private final LatencyHistogram loadTimes;
+
+        private final LatencyHistogram queueWaits;
+
+        private final LatencyHistogram solveTimes;
+
+        private final long elapsedNanos;
+
+        BatchResult(Solution[] solutions, Throwable[] failures, LatencyHistogram latencies, LatencyHistogram loadTimes,
+                    LatencyHistogram queueWaits, LatencyHistogram solveTimes, long elapsedNanos) {
+            this.solutions = solutions;
+            this.failures = failures;
+            this.latencies = latencies;
+            this.loadTimes = loadTimes;
+            this.queueWaits = queueWaits;
+            this.solveTimes = solveTimes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of instances of the batch.
+         */
+        public int size() {
+            return this.solutions.length;
+        }
+
+        /**
+         * Returns the solution of an instance, or null if it failed.
+         *
+         * @param index The position of the instance in the batch
+         */
+        public Solution getSolution(int index) {
+            return this.solutions[index];
+        }
+
+        /**
+         * Returns why an instance failed to load or to be solved, or null if it did not fail.
+         *
+         * @param index The position of the instance in the batch
+         */
+        public Throwable getFailure(int index) {
+            return this.failures[index];
+        }
+
+        /**
+         * Returns the number of instances that failed.
+         */
+        public int getFailureCount() {
+            int count = 0;
+
+            for (Throwable failure: this.failures) {
+                if (failure != null)
+                    count++;
+            }
+
+            return count;
+        }
+
+        /**
+         * Returns the wall-clock time of the whole batch in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return this.elapsedNanos;
+        }
+
+        /**
+         * Returns the number of instances solved per second.
+         */
+        public double getThroughput() {
+            return (size() - getFailureCount()) / (this.elapsedNanos / 1e9);
+        }
+
+        /**
+         * Returns the latencies of the solved instances, from the time they were admitted to the batch to their
+         * solution, in nanoseconds. Every latency is the sum of a load time, a queue wait and a solve time.
+         */
+        public LatencyHistogram getLatencies() {
+            return this.latencies;
+        }
+
+        /**
+         * Returns the times that the solved instances took to load, in nanoseconds.
+         */
+        public LatencyHistogram getLoadTimes() {
+            return this.loadTimes;
+        }
+
+        /**
+         * Returns the times that the solved instances waited for a thread to load or to solve them, in nanoseconds.
+         */
+        public LatencyHistogram getQueueWaits() {
+            return this.queueWaits;
+        }
+
+        /**
+         * Returns the times that the solved instances took to be solved, in nanoseconds.
+         */
+        public LatencyHistogram getSolveTimes() {
+            return this.solveTimes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "BatchResult{instances=%d, failures=%d, elapsed=%.1fms, throughput=%.1f/s, latency %s, load %s, " +
+                            "queue %s, solve %s}",
+                    size(), getFailureCount(), this.elapsedNanos / 1e6, getThroughput(), format(this.latencies),
+                    format(this.loadTimes), format(this.queueWaits), format(this.solveTimes));
+        }
+
+        private static String format(LatencyHistogram histogram) {
+            return String.format(Locale.ROOT, "p50<=%.1fms p99<=%.1fms max=%.1fms", histogram.getPercentile(50) / 1e6,
+                    histogram.getPercentile(99) / 1e6, histogram.getMax() / 1e6);
+        }
+    }
+
+    /**
+     * The threads that load the instances. They are created on demand and reused while there is work, and there are
+     * never more of them than instances in flight.
+     */
+    private final ExecutorService loaders;
+
+    /**
+     * The threads that solve the instances.
+     */
+    private final ExecutorService solvers;
+
+    /**
+     * The tabu search of every thread that solves instances.
+     */
+    private final ThreadLocal<TabuSearchVRP> tabuSearches = new ThreadLocal<>();
+
+    /**
+     * A permit for every instance that may be in flight.
+     */
+    private final Semaphore inFlight;
+
+    /**
+     * Constructor
+     *
+     * @param parallelism The number of instances that are solved at the same time
+     */
+    public BatchSolver(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+        this.loaders = Executors.newCachedThreadPool(daemonThreads("batch-loader-"));
+        this.solvers = Executors.newFixedThreadPool(parallelism, daemonThreads("batch-solver-"));
+        this.inFlight = new Semaphore(IN_FLIGHT_PER_SOLVER * parallelism);
+    }
+
+    /**
+     * Loads and solves a batch of instances, and waits until all of them are done. An instance that fails does not
+     * stop the others. The instances are admitted in order, as soon as there is room for one more in flight.
+     *
+     * @param instances The loaders of the instances, e.g. ones that read CVRPLIB files
+     * @param timeBudgetMillis The wall-clock budget of the search of every instance in milliseconds
+     * @param maxIterations The maximum number of tabu search iterations of every instance
+     * @return BatchResult, the solutions in the order of the instances.
+     */
+    public BatchResult solve(List<? extends Callable<ProblemInitializer>> instances, final long timeBudgetMillis,
+                             final int maxIterations) {
+        final int size = instances.size();
+        final Solution[] solutions = new Solution[size];
+        final Throwable[] failures = new Throwable[size];
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final LatencyHistogram loadTimes = new LatencyHistogram();
+        final LatencyHistogram queueWaits = new LatencyHistogram();
+        final LatencyHistogram solveTimes = new LatencyHistogram();
+
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            final Callable<ProblemInitializer> loader = instances.get(i);
+
+            // The times the instance was admitted, started and finished loading, and started solving. Every stage
+            // happens after the previous one, which makes the times it wrote visible.
+            final long[] times = new long[4];
+
+            this.inFlight.acquireUninterruptibly();
+            times[0] = System.nanoTime();
+
+            try {
+                results.add(CompletableFuture
+                        .supplyAsync(() -> {
+                            times[1] = System.nanoTime();
+                            ProblemInitializer instance = load(loader);
+                            times[2] = System.nanoTime();
+                            return instance;
+                        }, this.loaders)
+                        .thenApplyAsync(instance -> {
+                            times[3] = System.nanoTime();
+                            return solve(instance, timeBudgetMillis, maxIterations);
+                        }, this.solvers)
+                        .handle((solution, failure) -> {
+                            if (failure != null) {
+                                failures[index] = failure instanceof CompletionException ? failure.getCause() : failure;
+                            } else {
+                                long end = System.nanoTime();
+                                solutions[index] = solution;
+                                latencies.record(end - times[0]);
+                                loadTimes.record(times[2] - times[1]);
+                                queueWaits.record((times[1] - times[0]) + (times[3] - times[2]));
+                                solveTimes.record(end - times[3]);
+                            }
+
+                            this.inFlight.release();
+                            return null;
+                        }));
+            } catch (RuntimeException e) {
+                // The instance was never submitted, e.g. the pools were shut down.
+                this.inFlight.release();
+                throw e;
+            }
+        }
+
+        // The results are only read after every instance is done, which also makes the arrays visible.
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+
+        return new BatchResult(solutions, failures, latencies, loadTimes, queueWaits, solveTimes,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Stops the threads of the pools.
+     */
+    public void shutdown() {
+        this.loaders.shutdown();
+        this.solvers.shutdown();
+    }
+
+    /**
+     * Solves an instance on the current thread, with its own tabu search.
+     */
+    private Solution solve(ProblemInitializer instance, long timeBudgetMillis, int maxIterations) {
+        TabuSearchVRP tabuSearchVRP = this.tabuSearches.get();
+
+        if (tabuSearchVRP == null) {
+            tabuSearchVRP = new TabuSearchVRP(HORIZON, instance.getDistanceMatrix());
+            this.tabuSearches.set(tabuSearchVRP);
+        }
+
+        return new Solver(instance.getDistanceMatrix(), HORIZON, 1).solve(instance, timeBudgetMillis, maxIterations,
+                tabuSearchVRP);
+    }
+
+    /**
+     * Calls a loader, wrapping its checked exceptions.
+     */
+    private static ProblemInitializer load(Callable<ProblemInitializer> loader) {
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Returns a factory of daemon threads with the given name prefix.
+     */
+    private static ThreadFactory daemonThreads(final String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package component6;
+
+import component4.IntraRelocationMove;
+import component5.InterRelocationMove;
+
+/**
+ * The best intra-route and the best inter-route relocation moves found in one iteration of the tabu search.
+ */
+class BestRelocationMoves {
+
+    /**
+     * The best intra-route relocation move
+     */
+    private final IntraRelocationMove intraRelocationMove;
+
+    /**
+     * The best inter-route relocation move
+     */
+    private final InterRelocationMove interRelocationMove;
+
+    BestRelocationMoves(IntraRelocationMove intraRelocationMove, InterRelocationMove interRelocationMove) {
+        this.intraRelocationMove = intraRelocationMove;
+        this.interRelocationMove = interRelocationMove;
+    }
+
+    IntraRelocationMove getIntraRelocationMove() {
+        return intraRelocationMove;
+    }
+
+    InterRelocationMove getInterRelocationMove() {
+        return interRelocationMove;
+    }
+}
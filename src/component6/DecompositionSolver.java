@@ -0,0 +1,411 @@
+package component6;
+
+import component1.Node;
+import component1.Route;
+import component1.Solution;
+import component2.DistanceMatrix;
+import component2.FlatDistanceMatrix;
+import component2.MappedDistanceMatrix;
+import component2.ProblemInitializer;
+import component3.SavingsVRP;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Solves very large instances by "cluster first, route second": the customers are split into clusters by their polar
+ * angle around the depot, and every cluster is solved on its own, in parallel, by the savings construction and the
+ * anytime tabu search. The routes of all clusters are then stitched into one solution.
+ *
+ * Routes never cross the border of two clusters, so a border repair pass follows: for every pair of adjacent
+ * clusters, the routes that serve the customers closest to their border are solved again together, and they are
+ * replaced if the result is better. The borders are repaired in phases of pairs that share no cluster, so every phase
+ * runs in parallel too.
+ *
+ * Every subproblem copies the distances of its own nodes into a small flat matrix, so the instance itself may use an
+ * EuclideanDistanceOracle that never keeps all the distances.
+ */
+public class DecompositionSolver {
+
+    /**
+     * The fraction of the customers of a cluster, at each of its two sides, that are repaired with the adjacent cluster.
+     */
+    private static final double BORDER_FRACTION = 0.2;
+
+    /**
+     * A subproblem: some customers of the instance and the depot, with new ids from 0 (the depot) up.
+     */
+    private static final class Subproblem {
+
+        /**
+         * The nodes of the instance, indexed by their new id.
+         */
+        private final Node[] originals;
+
+        /**
+         * The subproblem, with the nodes renumbered.
+         */
+        private final ProblemInitializer instance;
+
+        /**
+         * Creates the subproblem of the given customers.
+         *
+         * @param depot The depot of the instance
+         * @param customers The customers of the subproblem
+         * @param capacity The capacity of every vehicle
+         * @param distanceMatrix The distance matrix of the instance
+         */
+        Subproblem(Node depot, List<Node> customers, int capacity, DistanceMatrix distanceMatrix) {
+            this.originals = new Node[customers.size() + 1];
+            this.originals[0] = depot;
+            for (int i = 0; i < customers.size(); i++) {
+                this.originals[i + 1] = customers.get(i);
+            }
+
+            List<Node> nodes = new ArrayList<>();
+            FlatDistanceMatrix subMatrix = FlatDistanceMatrix.create(this.originals.length, precisionOf(distanceMatrix));
+
+            for (int i = 0; i < this.originals.length; i++) {
+                Node node = new Node();
+                node.setId(i);
+                node.setX(this.originals[i].getX());
+                node.setY(this.originals[i].getY());
+                node.setDemand(this.originals[i].getDemand());
+                nodes.add(node);
+
+                // The matrix is symmetric, so only the lower triangle is copied.
+                for (int j = 0; j <= i; j++) {
+                    subMatrix.setDistance(i, j, distanceMatrix.getDistance(this.originals[i].getId(), this.originals[j].getId()));
+                }
+            }
+
+            // There are never more routes than customers.
+            this.instance = new ProblemInitializer(nodes, customers.size(), capacity, subMatrix);
+        }
+
+        /**
+         * Converts routes of the instance to a solution of the subproblem. The customers of the subproblem must be
+         * the customers of these routes, in the same order.
+         */
+        Solution toSubSolution(List<Route> routes) {
+            List<Node> nodes = this.instance.getCustomers();
+            Solution solution = new Solution();
+            int nextId = 1;
+
+            for (Route route: routes) {
+                Route subRoute = new Route(route.getCapacity());
+
+                subRoute.addNodeToRoute(nodes.get(0));
+                for (int i = 1; i < route.getRoute().size() - 1; i++) {
+                    subRoute.addNodeToRoute(nodes.get(nextId++));
+                }
+                subRoute.addNodeToRoute(nodes.get(0));
+
+                subRoute.setLoad(route.getLoad());
+                subRoute.setCost(route.getCost());
+                solution.addRoute(subRoute);
+                solution.setTotalCost(solution.getTotalCost() + route.getCost());
+            }
+
+            return solution;
+        }
+
+        /**
+         * Converts a solution of the subproblem to routes of the instance, leaving out the empty routes.
+         */
+        List<Route> toRoutes(Solution solution) {
+            List<Route> routes = new ArrayList<>();
+
+            for (Route subRoute: solution.getRoutes()) {
+                if (subRoute.getRoute().size() <= 2)
+                    continue;
+
+                Route route = new Route(subRoute.getCapacity());
+                for (Node node: subRoute.getRoute()) {
+                    route.addNodeToRoute(this.originals[node.getId()]);
+                }
+
+                route.setLoad(subRoute.getLoad());
+                route.setCost(subRoute.getCost());
+                routes.add(route);
+            }
+
+            return routes;
+        }
+    }
+
+    /**
+     * The number of customers of every cluster.
+     */
+    private final int clusterSize;
+
+    /**
+     * The work-stealing pool that solves the subproblems.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor
+     *
+     * @param clusterSize The number of customers of every cluster
+     * @param parallelism The number of subproblems that are solved at the same time
+     */
+    public DecompositionSolver(int clusterSize, int parallelism) {
+        if (clusterSize < 1)
+            throw new IllegalArgumentException("Cluster size must be positive: " + clusterSize);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+        this.clusterSize = clusterSize;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Solves an instance cluster by cluster, and repairs the borders of the clusters.
+     *
+     * @param instance The instance to be solved
+     * @param timeBudgetMillis The wall-clock budget of every subproblem in milliseconds
+     * @param maxIterations The maximum number of tabu search iterations of every subproblem
+     * @return Solution
+     * @throws IllegalStateException if the solution needs more routes than the available vehicles
+     */
+    public Solution solve(ProblemInitializer instance, final long timeBudgetMillis, final int maxIterations) {
+        final List<Node> customers = instance.getCustomers();
+        final Node depot = customers.remove(0);
+        final List<Route> vehicles = instance.getVehicles();
+        final int capacity = vehicles.get(0).getCapacity();
+        final DistanceMatrix distanceMatrix = instance.getDistanceMatrix();
+
+        // Sort the customers by their angle around the depot, and split them into clusters of consecutive angles.
+        Collections.sort(customers, new Comparator<Node>() {
+            @Override
+            public int compare(Node a, Node b) {
+                int byAngle = Double.compare(angle(depot, a), angle(depot, b));
+                return byAngle != 0 ? byAngle : Integer.compare(a.getId(), b.getId());
+            }
+        });
+
+        int clusters = Math.max(1, (customers.size() + this.clusterSize - 1) / this.clusterSize);
+        final int[] start = new int[clusters + 1];
+        for (int c = 0; c <= clusters; c++) {
+            start[c] = (int) ((long) c * customers.size() / clusters);
+        }
+
+        // Solve every cluster.
+        List<Callable<List<Route>>> tasks = new ArrayList<>();
+        for (int c = 0; c < clusters; c++) {
+            final List<Node> cluster = customers.subList(start[c], start[c + 1]);
+
+            tasks.add(new Callable<List<Route>>() {
+                @Override
+                public List<Route> call() {
+                    Subproblem subproblem = new Subproblem(depot, cluster, capacity, distanceMatrix);
+                    Solution initialSolution = new SavingsVRP(subproblem.instance).findSolution();
+                    return subproblem.toRoutes(improve(subproblem, initialSolution, timeBudgetMillis, maxIterations));
+                }
+            });
+        }
+        List<List<Route>> clusterRoutes = invokeAll(tasks);
+
+        // The position of every customer in the sweep order, to find the customers next to a border.
+        final int[] positionOf = new int[distanceMatrix.getSize()];
+        for (int p = 0; p < customers.size(); p++) {
+            positionOf[customers.get(p).getId()] = p;
+        }
+
+        // Repair the border of clusters c and c + 1 (the last cluster is next to the first one). A phase only repairs
+        // borders that share no cluster: first the ones after even clusters, then after odd ones, and the border of
+        // the last and the first cluster on its own if their number is odd.
+        for (int phase = 0; phase < 3 && clusters > 1; phase++) {
+            List<Integer> borders = new ArrayList<>();
+
+            for (int c = 0; c < clusters; c++) {
+                int borderPhase = c % 2 == 1 ? 1 : c < clusters - 1 ? 0 : 2;
+
+                // With two clusters, the border after the second one is the same as the one after the first.
+                if (borderPhase == phase && !(clusters == 2 && c == 1))
+                    borders.add(c);
+            }
+
+            List<Callable<List<Route>>> repairs = new ArrayList<>();
+            final List<List<Route>> routes = clusterRoutes;
+
+            for (final int c: borders) {
+                final int next = (c + 1) % clusters;
+
+                repairs.add(new Callable<List<Route>>() {
+                    @Override
+                    public List<Route> call() {
+                        return repairBorder(routes, c, next, start, positionOf, depot, capacity, distanceMatrix,
+                                timeBudgetMillis, maxIterations);
+                    }
+                });
+            }
+
+            List<List<Route>> repaired = invokeAll(repairs);
+
+            // Replace the routes of the repaired borders. A new route belongs to the cluster of its first customer.
+            for (int b = 0; b < borders.size(); b++) {
+                int c = borders.get(b);
+                int next = (c + 1) % clusters;
+
+                if (repaired.get(b) == null)
+                    continue;
+
+                clusterRoutes.get(c).removeIf(route -> touchesBorder(route, c, next, start, positionOf));
+                clusterRoutes.get(next).removeIf(route -> touchesBorder(route, c, next, start, positionOf));
+
+                for (Route route: repaired.get(b)) {
+                    int first = positionOf[route.getRoute().get(1).getId()];
+                    clusterRoutes.get(first >= start[c] && first < start[c + 1] ? c : next).add(route);
+                }
+            }
+        }
+
+        return stitch(clusterRoutes, vehicles);
+    }
+
+    /**
+     * Stops the threads of the pool.
+     */
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Solves again together the routes of clusters c and next that serve a customer next to their border.
+     *
+     * @return The new routes, or null if they are not better than the old ones.
+     */
+    private List<Route> repairBorder(List<List<Route>> clusterRoutes, int c, int next, int[] start, int[] positionOf,
+                                     Node depot, int capacity, DistanceMatrix distanceMatrix, long timeBudgetMillis,
+                                     int maxIterations) {
+        List<Route> routes = new ArrayList<>();
+        List<Node> customers = new ArrayList<>();
+
+        for (int cluster: new int[]{c, next}) {
+            for (Route route: clusterRoutes.get(cluster)) {
+                if (touchesBorder(route, c, next, start, positionOf)) {
+                    routes.add(route);
+                    customers.addAll(route.getRoute().subList(1, route.getRoute().size() - 1));
+                }
+            }
+        }
+
+        // The border is only worth repairing if routes of both sides meet there.
+        if (routes.size() < 2)
+            return null;
+
+        Subproblem subproblem = new Subproblem(depot, customers, capacity, distanceMatrix);
+        Solution initialSolution = subproblem.toSubSolution(routes);
+        Solution solution = improve(subproblem, initialSolution, timeBudgetMillis, maxIterations);
+
+        return solution.getTotalCost() < initialSolution.getTotalCost() ? subproblem.toRoutes(solution) : null;
+    }
+
+    /**
+     * Checks if a route serves a customer next to the border of clusters c and next: one of the last customers of c
+     * or one of the first customers of next, in the sweep order.
+     */
+    private static boolean touchesBorder(Route route, int c, int next, int[] start, int[] positionOf) {
+        int lastWidth = Math.max(1, (int) ((start[c + 1] - start[c]) * BORDER_FRACTION));
+        int firstWidth = Math.max(1, (int) ((start[next + 1] - start[next]) * BORDER_FRACTION));
+
+        for (int i = 1; i < route.getRoute().size() - 1; i++) {
+            int position = positionOf[route.getRoute().get(i).getId()];
+
+            if ((position >= start[c + 1] - lastWidth && position < start[c + 1]) ||
+                    (position >= start[next] && position < start[next] + firstWidth))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Improves the solution of a subproblem with the anytime tabu search.
+     */
+    private static Solution improve(Subproblem subproblem, Solution initialSolution, long timeBudgetMillis,
+                                    int maxIterations) {
+        Solver solver = new Solver(subproblem.instance.getDistanceMatrix());
+
+        try {
+            return solver.solve(initialSolution, timeBudgetMillis, maxIterations);
+        } finally {
+            solver.shutdown();
+        }
+    }
+
+    /**
+     * Copies the routes of all clusters, in the order of the clusters, into the vehicles of the instance.
+     */
+    private static Solution stitch(List<List<Route>> clusterRoutes, List<Route> vehicles) {
+        Solution solution = new Solution();
+        int nextVehicle = 0;
+
+        for (List<Route> routes: clusterRoutes) {
+            for (Route route: routes) {
+                if (nextVehicle == vehicles.size())
+                    throw new IllegalStateException("The solution needs more than " + vehicles.size() + " vehicles");
+
+                Route vehicle = vehicles.get(nextVehicle++);
+                for (Node node: route.getRoute()) {
+                    vehicle.addNodeToRoute(node);
+                }
+
+                vehicle.setLoad(route.getLoad());
+                vehicle.setCost(route.getCost());
+                solution.addRoute(vehicle);
+                solution.setTotalCost(solution.getTotalCost() + vehicle.getCost());
+            }
+        }
+
+        return solution;
+    }
+
+    /**
+     * Runs the tasks on the pool and returns their results, in the same order.
+     */
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>();
+
+        try {
+            for (Future<T> result: this.pool.invokeAll(tasks)) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while solving the subproblems", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A subproblem failed", e.getCause());
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the polar angle of a customer around the depot.
+     */
+    private static double angle(Node depot, Node customer) {
+        return Math.atan2(customer.getY() - depot.getY(), customer.getX() - depot.getX());
+    }
+
+    /**
+     * Returns the precision of the distances of a matrix. The EuclideanDistanceOracle computes integer distances.
+     */
+    private static FlatDistanceMatrix.Precision precisionOf(DistanceMatrix distanceMatrix) {
+        if (distanceMatrix instanceof FlatDistanceMatrix)
+            return ((FlatDistanceMatrix) distanceMatrix).getPrecision();
+
+        if (distanceMatrix instanceof MappedDistanceMatrix)
+            return ((MappedDistanceMatrix) distanceMatrix).getPrecision();
+
+        return FlatDistanceMatrix.Precision.INT;
+    }
+}
@@ -0,0 +1,262 @@
+package component6;
+
+import component1.Solution;
+import component1.SolutionSnapshot;
+import component2.DistanceMatrix;
+import component4.IntraRelocationMove;
+import component5.InterRelocationMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A cooperative parallel tabu search. Every island runs its own tabu search on a private copy of the solution, and
+ * every few iterations it sends its best solution to other islands, which adopt it if it is better than their own.
+ *
+ * Every island has a mailbox of capacity one, which keeps only the best solution sent to it since the island last
+ * looked. Sending and receiving are single compare-and-set operations, so the islands never block each other, and
+ * the solutions sent never need to be copied: they are snapshots whose routes are never changed.
+ *
+ * The islands do not wait for each other, so the iterations of an island scale with the number of cores, but the
+ * result depends on the timing of the threads. Island 0 only sends its solutions and never adopts one, so that it
+ * follows exactly the trajectory of a single tabu search run, and the result is never worse than that.
+ */
+class IslandSearchVRP {
+
+    /**
+     * The islands that every island sends its best solution to.
+     */
+    enum Topology {
+
+        /**
+         * Island i sends to island i + 1, and the last one to island 1. The last island sends to nobody if it is
+         * island 1 itself, i.e. if there are only 2 islands.
+         */
+        RING,
+
+        /**
+         * Every island sends to all the others.
+         */
+        BROADCAST
+    }
+
+    /**
+     * The distance matrix, shared by all the islands.
+     */
+    private final DistanceMatrix distanceMatrix;
+
+    /**
+     * The pool that runs the islands, one thread per island.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The number of islands.
+     */
+    private final int islands;
+
+    /**
+     * The number of iterations between two migrations.
+     */
+    private final int migrationInterval;
+
+    /**
+     * The islands that receive the best solution of every island.
+     */
+    private final Topology topology;
+
+    /**
+     * The mailbox of every island of the current run.
+     */
+    private List<AtomicReference<Solution>> mailboxes;
+
+    /**
+     * The number of tabu search iterations per second of every island of the last run.
+     */
+    private double[] throughput;
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix
+     * @param islands The number of islands, i.e. threads
+     * @param migrationInterval The number of iterations between two migrations
+     * @param topology The islands that receive the best solution of every island
+     */
+    IslandSearchVRP(DistanceMatrix distanceMatrix, int islands, int migrationInterval, Topology topology) {
+        if (islands < 1 || migrationInterval < 1)
+            throw new IllegalArgumentException("Islands and migration interval must be positive");
+
+        this.distanceMatrix = distanceMatrix;
+        this.pool = new ForkJoinPool(islands);
+        this.islands = islands;
+        this.migrationInterval = migrationInterval;
+        this.topology = topology;
+    }
+
+    /**
+     * Runs one island per trajectory and returns the best solution found by any of them.
+     *
+     * @param initialSolution The initial solution. It is not changed.
+     * @param trajectories The seed, horizon and perturbation of every island, one per island
+     * @param iterations The number of tabu search iterations of every island
+     * @return Solution, the best solution found.
+     */
+    Solution solve(final Solution initialSolution, List<PortfolioSearchVRP.Trajectory> trajectories,
+                   final int iterations) {
+        // The pool has one thread per island, so that all the islands search, and exchange solutions, at the same time.
+        if (trajectories.size() != this.islands)
+            throw new IllegalArgumentException("Expected one trajectory per island (" + this.islands + "), got " +
+                    trajectories.size());
+
+        this.mailboxes = new ArrayList<>();
+        for (int i = 0; i < trajectories.size(); i++) {
+            this.mailboxes.add(new AtomicReference<Solution>());
+        }
+
+        this.throughput = new double[trajectories.size()];
+
+        List<Future<Solution>> results = new ArrayList<>();
+
+        for (int i = 0; i < trajectories.size(); i++) {
+            final int island = i;
+            final PortfolioSearchVRP.Trajectory trajectory = trajectories.get(i);
+
+            results.add(this.pool.submit(new Callable<Solution>() {
+                @Override
+                public Solution call() {
+                    return run(initialSolution, trajectory, island, iterations);
+                }
+            }));
+        }
+
+        Solution bestSolution = initialSolution;
+
+        try {
+            // Strictly better only, so that ties are resolved in favor of the first island.
+            for (Future<Solution> result: results) {
+                Solution candidate = result.get();
+                if (candidate.getTotalCost() < bestSolution.getTotalCost())
+                    bestSolution = candidate;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the islands", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("An island failed", e.getCause());
+        }
+
+        return bestSolution;
+    }
+
+    /**
+     * Returns the number of tabu search iterations per second of every island of the last run.
+     */
+    double[] getThroughput() {
+        return this.throughput;
+    }
+
+    /**
+     * Stops the threads of the pool.
+     */
+    void shutdown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Runs the tabu search of a single island, and returns its best solution.
+     */
+    private Solution run(Solution initialSolution, PortfolioSearchVRP.Trajectory trajectory, int island,
+                         int iterations) {
+        long start = System.nanoTime();
+
+        Solution solution = trajectory.createInitialSolution(initialSolution, this.distanceMatrix);
+        SolutionSnapshot bestSolution = new SolutionSnapshot(solution);
+        TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(trajectory.getHorizon(), this.distanceMatrix);
+        int iteration = 1;
+
+        for (; iteration <= iterations; iteration++) {
+            BestRelocationMoves moves = tabuSearchVRP.findBestRelocationMoves(solution, iteration,
+                    bestSolution.getSolution());
+            IntraRelocationMove intraRelocationMove = moves.getIntraRelocationMove();
+            InterRelocationMove interRelocationMove = moves.getInterRelocationMove();
+
+            // Every move is tabu
+            if (intraRelocationMove.getCost() == Double.MAX_VALUE && interRelocationMove.getCost() == Double.MAX_VALUE)
+                break;
+
+            if (intraRelocationMove.getCost() < interRelocationMove.getCost()) {
+                tabuSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove, iteration);
+                bestSolution.markDirty(intraRelocationMove.getRoute());
+            } else {
+                tabuSearchVRP.applyInterRelocationMove(solution, interRelocationMove, iteration);
+                bestSolution.markDirty(interRelocationMove.getRouteFrom());
+                bestSolution.markDirty(interRelocationMove.getRouteTo());
+            }
+
+            if (solution.getTotalCost() < bestSolution.getTotalCost())
+                bestSolution.update();
+
+            if (iteration % this.migrationInterval == 0) {
+                emigrate(bestSolution.toSolution(), island);
+
+                // Continue from an immigrant that is better than anything this island found. The tabu memory is
+                // kept, since it refers to node ids, not to routes.
+                Solution immigrant = this.mailboxes.get(island).getAndSet(null);
+                if (island != 0 && immigrant != null && immigrant.getTotalCost() < bestSolution.getTotalCost()) {
+                    solution = immigrant.cloneSolution();
+                    bestSolution = new SolutionSnapshot(solution);
+                }
+            }
+        }
+
+        this.throughput[island] = (iteration - 1) / ((System.nanoTime() - start) / 1e9);
+
+        return bestSolution.toSolution();
+    }
+
+    /**
+     * Sends the best solution of an island to the islands of the topology.
+     */
+    private void emigrate(Solution elite, int island) {
+        int islands = this.mailboxes.size();
+
+        // Island 0 never adopts a solution, so the ring skips it, and an island never sends to itself.
+        if (this.topology == Topology.RING) {
+            int next = (island + 1) % islands;
+            if (next == 0)
+                next = 1 % islands;
+
+            if (next != island)
+                deliver(elite, next);
+            return;
+        }
+
+        for (int other = 1; other < islands; other++) {
+            if (other != island)
+                deliver(elite, other);
+        }
+    }
+
+    /**
+     * Puts a solution into the mailbox of an island, unless the mailbox already holds a better or equal one.
+     */
+    private void deliver(Solution elite, int island) {
+        AtomicReference<Solution> mailbox = this.mailboxes.get(island);
+
+        while (true) {
+            Solution current = mailbox.get();
+
+            if (current != null && current.getTotalCost() <= elite.getTotalCost())
+                return;
+
+            if (mailbox.compareAndSet(current, elite))
+                return;
+        }
+    }
+}
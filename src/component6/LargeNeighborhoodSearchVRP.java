@@ -0,0 +1,509 @@
+package component6;
+
+import component1.Node;
+import component1.Route;
+import component1.Solution;
+import component1.SolutionSnapshot;
+import component2.DistanceMatrix;
+import component2.NeighborLists;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A ruin-and-recreate large neighborhood search. Every iteration removes a batch of customers from the solution and
+ * inserts them back one by one, so that many customers change their route at once, which the single relocation moves
+ * of the tabu search cannot do.
+ *
+ * The customers are removed at random, by their removal gain ("worst") or next to each other ("related"), and they are
+ * inserted back at their cheapest position, either cheapest first or largest regret first. The best position of every
+ * removed customer within every route is cached, and after an insertion only the route that changed is evaluated
+ * again. The result is accepted if it is not much worse than the current solution, with a threshold that falls to 0.
+ */
+class LargeNeighborhoodSearchVRP {
+
+    /**
+     * The ways to remove customers.
+     */
+    enum Removal {
+
+        /**
+         * Random customers.
+         */
+        RANDOM,
+
+        /**
+         * The customers whose removal saves the most, with some randomness.
+         */
+        WORST,
+
+        /**
+         * A random customer and customers near the ones already removed.
+         */
+        RELATED
+    }
+
+    /**
+     * The ways to insert customers back.
+     */
+    enum Insertion {
+
+        /**
+         * The customer with the cheapest insertion goes first.
+         */
+        CHEAPEST,
+
+        /**
+         * The customer that would lose the most if its best route were taken goes first.
+         */
+        REGRET
+    }
+
+    /**
+     * The smallest and the largest number of customers removed per iteration.
+     */
+    private static final int MIN_REMOVED = 4, MAX_REMOVED = 40;
+
+    /**
+     * The randomness of the worst removal: the rank of the removed customer is r^WORST_RANDOMNESS times the number of
+     * customers, for a uniform r.
+     */
+    private static final int WORST_RANDOMNESS = 3;
+
+    /**
+     * A solution is accepted if it is at most this fraction worse than the current one at the first iteration. The
+     * threshold falls linearly to 0 at the last iteration.
+     */
+    private static final double INITIAL_THRESHOLD = 0.001;
+
+    /**
+     * The distance matrix
+     */
+    private final DistanceMatrix distanceMatrix;
+
+    /**
+     * The nearest neighbors of every customer, for the related removal.
+     */
+    private final NeighborLists neighborLists;
+
+    /**
+     * The random generator of the search.
+     */
+    private final Random ran;
+
+    /**
+     * The largest number of customers removed per iteration.
+     */
+    private final int maxRemoved;
+
+    /**
+     * The customers removed by the current iteration, and whether every customer is removed.
+     */
+    private final Node[] removed;
+
+    private final boolean[] isRemoved;
+
+    private int removedCount;
+
+    /**
+     * The nodes of every customer and the route it is served by, indexed by id.
+     */
+    private final Node[] nodes;
+
+    private final int[] routeOf;
+
+    /**
+     * The cheapest insertion cost and position of every removed customer within every route, indexed by the position
+     * of the customer in "removed" and by the route. The cost is Double.MAX_VALUE if the route cannot serve it.
+     */
+    private double[][] insertionCost;
+
+    private int[][] insertionPosition;
+
+    /**
+     * The customers sorted by decreasing removal gain, for the worst removal.
+     */
+    private final long[] worstKeys;
+
+    /**
+     * The state of the routes before the current iteration changed them, to undo it if it is rejected.
+     */
+    private List<List<Node>> savedNodes;
+
+    private int[] savedLoads;
+
+    private double[] savedCosts;
+
+    private final List<Integer> changedRoutes = new ArrayList<>();
+
+    /**
+     * The number of iterations of the last run, and of the accepted ones.
+     */
+    private int iterations, acceptedIterations;
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix
+     * @param seed The seed of the random generator
+     */
+    LargeNeighborhoodSearchVRP(DistanceMatrix distanceMatrix, long seed) {
+        int customers = distanceMatrix.getSize() - 1;
+
+        this.distanceMatrix = distanceMatrix;
+        this.ran = new Random(seed);
+        this.maxRemoved = Math.min(MAX_REMOVED, customers);
+        this.neighborLists = new NeighborLists(distanceMatrix, this.maxRemoved);
+
+        this.removed = new Node[this.maxRemoved];
+        this.isRemoved = new boolean[distanceMatrix.getSize()];
+        this.nodes = new Node[distanceMatrix.getSize()];
+        this.routeOf = new int[distanceMatrix.getSize()];
+        this.worstKeys = new long[customers];
+    }
+
+    /**
+     * Improves a solution with the given number of ruin and recreate iterations.
+     *
+     * @param initialSolution The initial solution. It is not changed.
+     * @param iterations The number of iterations
+     * @return Solution, the best solution found.
+     */
+    Solution solve(Solution initialSolution, int iterations) {
+        Solution solution = initialSolution.cloneSolution();
+        SolutionSnapshot bestSolution = new SolutionSnapshot(solution);
+        List<Route> routes = solution.getRoutes();
+
+        for (Route route: routes) {
+            for (Node node: route.getRoute()) {
+                this.nodes[node.getId()] = node;
+            }
+        }
+
+        // The caches are sized for the routes of the solution, which never change in number.
+        this.insertionCost = new double[this.maxRemoved][routes.size()];
+        this.insertionPosition = new int[this.maxRemoved][routes.size()];
+        this.savedNodes = new ArrayList<>(Collections.<List<Node>>nCopies(routes.size(), null));
+        this.savedLoads = new int[routes.size()];
+        this.savedCosts = new double[routes.size()];
+
+        this.iterations = 0;
+        this.acceptedIterations = 0;
+
+        if (this.maxRemoved == 0)
+            return bestSolution.toSolution();
+
+        for (int i = 0; i < iterations; i++) {
+            double currentCost = solution.getTotalCost();
+            double threshold = INITIAL_THRESHOLD * (iterations - i) / iterations;
+
+            Removal removal = Removal.values()[this.ran.nextInt(Removal.values().length)];
+            Insertion insertion = Insertion.values()[this.ran.nextInt(Insertion.values().length)];
+            int count = MIN_REMOVED >= this.maxRemoved ? this.maxRemoved :
+                    MIN_REMOVED + this.ran.nextInt(this.maxRemoved - MIN_REMOVED + 1);
+
+            ruin(solution, removal, count);
+            boolean recreated = recreate(solution, insertion);
+            this.iterations++;
+
+            // Keep the result if every customer was inserted back and it is not much worse, otherwise undo it.
+            if (recreated && solution.getTotalCost() <= currentCost * (1 + threshold)) {
+                this.acceptedIterations++;
+
+                for (int route: this.changedRoutes) {
+                    bestSolution.markDirty(route);
+                }
+
+                if (solution.getTotalCost() < bestSolution.getTotalCost())
+                    bestSolution.update();
+            } else {
+                restore(solution, currentCost);
+            }
+
+            for (int route: this.changedRoutes) {
+                this.savedNodes.set(route, null);
+            }
+            this.changedRoutes.clear();
+        }
+
+        return bestSolution.toSolution();
+    }
+
+    /**
+     * Returns the number of iterations of the last run.
+     */
+    int getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Returns the number of accepted iterations of the last run.
+     */
+    int getAcceptedIterations() {
+        return this.acceptedIterations;
+    }
+
+    /**
+     * Removes "count" customers from the solution.
+     */
+    private void ruin(Solution solution, Removal removal, int count) {
+        List<Route> routes = solution.getRoutes();
+        int customers = this.worstKeys.length;
+
+        for (int r = 0; r < routes.size(); r++) {
+            List<Node> route = routes.get(r).getRoute();
+
+            for (int j = 1; j < route.size() - 1; j++) {
+                this.routeOf[route.get(j).getId()] = r;
+            }
+        }
+
+        this.removedCount = 0;
+
+        if (removal == Removal.WORST) {
+
+            // Sort the customers by decreasing removal gain, as a float in the high bits of the key, flipped.
+            int k = 0;
+            for (Route route: routes) {
+                List<Node> nodes = route.getRoute();
+
+                for (int j = 1; j < nodes.size() - 1; j++) {
+                    double gain = Math.max(0, removalGain(nodes.get(j - 1), nodes.get(j), nodes.get(j + 1)));
+                    this.worstKeys[k++] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits((float) gain)) << 32) |
+                            nodes.get(j).getId();
+                }
+            }
+            Arrays.sort(this.worstKeys, 0, k);
+
+            while (this.removedCount < count) {
+                int rank = (int) (Math.pow(this.ran.nextDouble(), WORST_RANDOMNESS) * k);
+                remove(solution, (int) this.worstKeys[rank]);
+            }
+        } else if (removal == Removal.RELATED) {
+            remove(solution, 1 + this.ran.nextInt(customers));
+
+            while (this.removedCount < count) {
+
+                // The nearest customer that is still served to a random removed one, or a random customer if none.
+                Node base = this.removed[this.ran.nextInt(this.removedCount)];
+                int next = 1 + this.ran.nextInt(customers);
+
+                for (int n = 0; n < this.neighborLists.getK(); n++) {
+                    int neighbor = this.neighborLists.getNeighbor(base.getId(), n);
+
+                    if (neighbor != 0 && !this.isRemoved[neighbor]) {
+                        next = neighbor;
+                        break;
+                    }
+                }
+
+                remove(solution, next);
+            }
+        } else {
+            while (this.removedCount < count) {
+                remove(solution, 1 + this.ran.nextInt(customers));
+            }
+        }
+    }
+
+    /**
+     * Removes a customer from its route, unless it is already removed.
+     */
+    private void remove(Solution solution, int customer) {
+        if (this.isRemoved[customer])
+            return;
+
+        int r = this.routeOf[customer];
+        Route route = solution.getRoutes().get(r);
+        save(route, r);
+
+        List<Node> nodes = route.getRoute();
+        int position = nodes.indexOf(this.nodes[customer]);
+        double gain = removalGain(nodes.get(position - 1), nodes.get(position), nodes.get(position + 1));
+
+        nodes.remove(position);
+        route.setLoad(route.getLoad() - this.nodes[customer].getDemand());
+        route.setCost(route.getCost() - gain);
+        solution.setTotalCost(solution.getTotalCost() - gain);
+
+        this.isRemoved[customer] = true;
+        this.removed[this.removedCount++] = this.nodes[customer];
+    }
+
+    /**
+     * Inserts the removed customers back into the solution.
+     *
+     * @return False if a customer could not be inserted into any route.
+     */
+    private boolean recreate(Solution solution, Insertion insertion) {
+        List<Route> routes = solution.getRoutes();
+
+        for (int u = 0; u < this.removedCount; u++) {
+            for (int r = 0; r < routes.size(); r++) {
+                evaluateInsertion(routes.get(r), u, r);
+            }
+        }
+
+        // The removed customers that are not inserted yet are in positions [0, remaining) of "removed".
+        int remaining = this.removedCount;
+
+        while (remaining > 0) {
+            int chosen = -1, chosenRoute = -1;
+            double chosenCost = Double.MAX_VALUE, chosenRegret = -1;
+
+            for (int u = 0; u < remaining; u++) {
+                double best = Double.MAX_VALUE, second = Double.MAX_VALUE;
+                int bestRoute = -1;
+
+                for (int r = 0; r < routes.size(); r++) {
+                    double cost = this.insertionCost[u][r];
+
+                    if (cost < best) {
+                        second = best;
+                        best = cost;
+                        bestRoute = r;
+                    } else if (cost < second) {
+                        second = cost;
+                    }
+                }
+
+                // This customer fits nowhere
+                if (bestRoute == -1)
+                    return false;
+
+                // A customer that fits in a single route has the largest regret.
+                double regret = insertion == Insertion.REGRET ? (second == Double.MAX_VALUE ? Double.MAX_VALUE : second - best) : 0;
+
+                if (regret > chosenRegret || (regret == chosenRegret && best < chosenCost)) {
+                    chosen = u;
+                    chosenRoute = bestRoute;
+                    chosenCost = best;
+                    chosenRegret = regret;
+                }
+            }
+
+            insert(solution, chosen, chosenRoute);
+
+            // Move the last customer that is not inserted yet, with its cached insertions, into the freed position.
+            remaining--;
+            swapRemoved(chosen, remaining);
+
+            // Only the route that changed has to be evaluated again.
+            for (int u = 0; u < remaining; u++) {
+                evaluateInsertion(routes.get(chosenRoute), u, chosenRoute);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Inserts the removed customer in position u of "removed" at its cached position within route r.
+     */
+    private void insert(Solution solution, int u, int r) {
+        Route route = solution.getRoutes().get(r);
+        save(route, r);
+
+        Node customer = this.removed[u];
+        route.addNodeToRouteWithIndex(customer, this.insertionPosition[u][r] + 1);
+        route.setLoad(route.getLoad() + customer.getDemand());
+        route.setCost(route.getCost() + this.insertionCost[u][r]);
+        solution.setTotalCost(solution.getTotalCost() + this.insertionCost[u][r]);
+
+        this.isRemoved[customer.getId()] = false;
+    }
+
+    /**
+     * Finds the cheapest position of the removed customer in position u of "removed" within route r, and caches it.
+     */
+    private void evaluateInsertion(Route route, int u, int r) {
+        Node customer = this.removed[u];
+        double bestCost = Double.MAX_VALUE;
+        int bestPosition = -1;
+
+        // If the demand of the customer cannot be served by the vehicle, it cannot be inserted anywhere in the route.
+        if (route.getLoad() + customer.getDemand() <= route.getCapacity()) {
+            List<Node> nodes = route.getRoute();
+            int id = customer.getId();
+
+            for (int l = 0; l < nodes.size() - 1; l++) {
+                int after = nodes.get(l).getId();
+                int afterSuccessor = nodes.get(l + 1).getId();
+
+                double cost = this.distanceMatrix.getDistance(after, id) +
+                        this.distanceMatrix.getDistance(id, afterSuccessor) -
+                        this.distanceMatrix.getDistance(after, afterSuccessor);
+
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestPosition = l;
+                }
+            }
+        }
+
+        this.insertionCost[u][r] = bestCost;
+        this.insertionPosition[u][r] = bestPosition;
+    }
+
+    /**
+     * Swaps two removed customers, together with their cached insertions.
+     */
+    private void swapRemoved(int a, int b) {
+        Node node = this.removed[a];
+        this.removed[a] = this.removed[b];
+        this.removed[b] = node;
+
+        double[] costs = this.insertionCost[a];
+        this.insertionCost[a] = this.insertionCost[b];
+        this.insertionCost[b] = costs;
+
+        int[] positions = this.insertionPosition[a];
+        this.insertionPosition[a] = this.insertionPosition[b];
+        this.insertionPosition[b] = positions;
+    }
+
+    /**
+     * Returns how much the cost of a route falls if "customer" is removed from between its neighbors.
+     */
+    private double removalGain(Node predecessor, Node customer, Node successor) {
+        return this.distanceMatrix.getDistance(predecessor.getId(), customer.getId()) +
+                this.distanceMatrix.getDistance(customer.getId(), successor.getId()) -
+                this.distanceMatrix.getDistance(predecessor.getId(), successor.getId());
+    }
+
+    /**
+     * Saves route r before the current iteration changes it for the first time.
+     */
+    private void save(Route route, int r) {
+        if (this.savedNodes.get(r) != null)
+            return;
+
+        this.savedNodes.set(r, new ArrayList<>(route.getRoute()));
+        this.savedLoads[r] = route.getLoad();
+        this.savedCosts[r] = route.getCost();
+        this.changedRoutes.add(r);
+    }
+
+    /**
+     * Undoes the current iteration.
+     */
+    private void restore(Solution solution, double cost) {
+        for (int r: this.changedRoutes) {
+            Route route = solution.getRoutes().get(r);
+
+            route.getRoute().clear();
+            route.getRoute().addAll(this.savedNodes.get(r));
+            route.setLoad(this.savedLoads[r]);
+            route.setCost(this.savedCosts[r]);
+        }
+
+        for (int u = 0; u < this.removedCount; u++) {
+            this.isRemoved[this.removed[u].getId()] = false;
+        }
+
+        solution.setTotalCost(cost);
+    }
+}
@@ -0,0 +1,327 @@
+package component6;
+
+import component1.Node;
+import component1.Route;
+import component1.Solution;
+import component1.SolutionSnapshot;
+import component2.DistanceMatrix;
+import component4.IntraRelocationMove;
+import component5.InterRelocationMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a portfolio of independent tabu search trajectories at the same time, each one with its own seed, tabu horizon
+ * and randomly perturbed copy of the initial solution.
+ *
+ * The trajectories share the read-only distance matrix and publish their best solutions to a global incumbent, which
+ * is updated without locks. A trajectory that is clearly worse than the incumbent after a while is abandoned, so that
+ * its thread can work on the trajectories that are still promising.
+ *
+ * Every trajectory is deterministic, but which trajectories are abandoned depends on the timing of the threads.
+ * Trajectory 0 is never abandoned. In the mix of trajectories it starts from the unperturbed initial solution with the
+ * default horizon, so the result is never worse than that of a single tabu search run of the same length.
+ */
+class PortfolioSearchVRP {
+
+    /**
+     * A trajectory is abandoned when its best cost is more than this fraction above the cost of the incumbent.
+     */
+    private static final double ABANDON_GAP = 0.05;
+
+    /**
+     * The fraction of its iterations that a trajectory always runs, before it may be abandoned.
+     */
+    private static final double MIN_ITERATIONS_FRACTION = 0.25;
+
+    /**
+     * The settings of a single trajectory.
+     */
+    static class Trajectory {
+
+        /**
+         * The seed of the perturbation of the initial solution.
+         */
+        private final long seed;
+
+        /**
+         * The tabu horizon.
+         */
+        private final int horizon;
+
+        /**
+         * The number of random relocations applied to the initial solution.
+         */
+        private final int perturbation;
+
+        Trajectory(long seed, int horizon, int perturbation) {
+            this.seed = seed;
+            this.horizon = horizon;
+            this.perturbation = perturbation;
+        }
+
+        /**
+         * Creates a mix of trajectories. The first one is the plain tabu search with horizon 20; the others have
+         * horizons from 10 to 30 and perturb more and more customers.
+         *
+         * @param count The number of trajectories
+         * @param seed The seed of the first trajectory
+         * @param customers The number of customers of the instance
+         * @return The trajectories
+         */
+        static List<Trajectory> mix(int count, long seed, int customers) {
+            List<Trajectory> trajectories = new ArrayList<>();
+
+            for (int t = 0; t < count; t++) {
+                int horizon = t == 0 ? 20 : 10 + 5 * (t % 5);
+                int perturbation = t == 0 ? 0 : Math.max(1, customers * (1 + t % 3) / 10);
+                trajectories.add(new Trajectory(seed + t, horizon, perturbation));
+            }
+
+            return trajectories;
+        }
+
+        /**
+         * Creates the initial solution of the trajectory: a copy of the given solution, perturbed by the seed of the
+         * trajectory.
+         *
+         * @param initialSolution The common initial solution. It is not changed.
+         * @param distanceMatrix The distance matrix
+         * @return Solution
+         */
+        Solution createInitialSolution(Solution initialSolution, DistanceMatrix distanceMatrix) {
+            Solution solution = initialSolution.cloneSolution();
+            perturb(solution, distanceMatrix, new Random(this.seed), this.perturbation);
+            return solution;
+        }
+
+        int getHorizon() {
+            return this.horizon;
+        }
+
+        /**
+         * Applies random feasible relocations of customers to a solution.
+         *
+         * @param solution The solution to be perturbed
+         * @param distanceMatrix The distance matrix
+         * @param ran The random generator
+         * @param relocations The number of relocations
+         */
+        private static void perturb(Solution solution, DistanceMatrix distanceMatrix, Random ran, int relocations) {
+            List<Route> routes = solution.getRoutes();
+
+            for (int n = 0; n < relocations; n++) {
+                Route from = routes.get(ran.nextInt(routes.size()));
+
+                // Only the depot twice
+                if (from.getRoute().size() <= 2)
+                    continue;
+
+                int position = 1 + ran.nextInt(from.getRoute().size() - 2);
+                Node customer = from.getRoute().get(position);
+
+                Route to = routes.get(ran.nextInt(routes.size()));
+                if (to != from && to.getLoad() + customer.getDemand() > to.getCapacity())
+                    continue;
+
+                double oldCost = from.getCost() + (to == from ? 0 : to.getCost());
+
+                from.removeNode(position);
+                to.addNodeToRouteWithIndex(customer, 1 + ran.nextInt(to.getRoute().size() - 1));
+
+                if (to != from) {
+                    from.setLoad(from.getLoad() - customer.getDemand());
+                    to.setLoad(to.getLoad() + customer.getDemand());
+                }
+
+                from.setCost(routeCost(from, distanceMatrix));
+                to.setCost(routeCost(to, distanceMatrix));
+                solution.setTotalCost(solution.getTotalCost() + from.getCost() + (to == from ? 0 : to.getCost()) - oldCost);
+            }
+        }
+
+        /**
+         * Computes the cost of a route from its nodes.
+         */
+        private static double routeCost(Route route, DistanceMatrix distanceMatrix) {
+            double cost = 0;
+
+            for (int i = 0; i + 1 < route.getRoute().size(); i++) {
+                cost += distanceMatrix.getDistance(route.getRoute().get(i).getId(), route.getRoute().get(i + 1).getId());
+            }
+
+            return cost;
+        }
+    }
+
+    /**
+     * The best solution found by any trajectory. It is never changed after it is published.
+     */
+    private static final class Incumbent {
+
+        private final Solution solution;
+
+        private final int trajectory;
+
+        Incumbent(Solution solution, int trajectory) {
+            this.solution = solution;
+            this.trajectory = trajectory;
+        }
+    }
+
+    /**
+     * The distance matrix, shared by all the trajectories.
+     */
+    private final DistanceMatrix distanceMatrix;
+
+    /**
+     * The work-stealing pool that runs the trajectories.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The best solution found so far by any trajectory of the current run.
+     */
+    private final AtomicReference<Incumbent> incumbent = new AtomicReference<>();
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix
+     * @param parallelism The number of trajectories that run at the same time
+     */
+    PortfolioSearchVRP(DistanceMatrix distanceMatrix, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+
+        this.distanceMatrix = distanceMatrix;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Runs all the trajectories and returns the best solution found.
+     *
+     * @param initialSolution The initial solution. It is not changed.
+     * @param trajectories The settings of every trajectory
+     * @param iterations The number of tabu search iterations of every trajectory
+     * @return Solution, the best solution found.
+     */
+    Solution solve(final Solution initialSolution, List<Trajectory> trajectories, final int iterations) {
+        this.incumbent.set(new Incumbent(initialSolution.cloneSolution(), -1));
+
+        List<Future<?>> results = new ArrayList<>();
+
+        for (int t = 0; t < trajectories.size(); t++) {
+            final int index = t;
+            final Trajectory trajectory = trajectories.get(t);
+
+            results.add(this.pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    run(initialSolution, trajectory, index, iterations);
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> result: results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running the trajectories", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A trajectory failed", e.getCause());
+        }
+
+        return this.incumbent.get().solution;
+    }
+
+    /**
+     * Returns the trajectory that found the best solution of the last run, or -1 if none improved the initial one.
+     */
+    int getBestTrajectory() {
+        return this.incumbent.get().trajectory;
+    }
+
+    /**
+     * Stops the threads of the pool.
+     */
+    void shutdown() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Runs a single trajectory, exactly like TestComponent6 runs the tabu search, publishing every new best solution.
+     */
+    private void run(Solution initialSolution, Trajectory trajectory, int index, int iterations) {
+        Solution solution = trajectory.createInitialSolution(initialSolution, this.distanceMatrix);
+
+        SolutionSnapshot bestSolution = new SolutionSnapshot(solution);
+        TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(trajectory.horizon, this.distanceMatrix);
+        int minIterations = (int) (iterations * MIN_ITERATIONS_FRACTION);
+
+        for (int i = 1; i <= iterations; i++) {
+            BestRelocationMoves moves = tabuSearchVRP.findBestRelocationMoves(solution, i, bestSolution.getSolution());
+            IntraRelocationMove intraRelocationMove = moves.getIntraRelocationMove();
+            InterRelocationMove interRelocationMove = moves.getInterRelocationMove();
+
+            // Every move is tabu
+            if (intraRelocationMove.getCost() == Double.MAX_VALUE && interRelocationMove.getCost() == Double.MAX_VALUE)
+                break;
+
+            if (intraRelocationMove.getCost() < interRelocationMove.getCost()) {
+                tabuSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove, i);
+                bestSolution.markDirty(intraRelocationMove.getRoute());
+            } else {
+                tabuSearchVRP.applyInterRelocationMove(solution, interRelocationMove, i);
+                bestSolution.markDirty(interRelocationMove.getRouteFrom());
+                bestSolution.markDirty(interRelocationMove.getRouteTo());
+            }
+
+            if (solution.getTotalCost() < bestSolution.getTotalCost()) {
+                bestSolution.update();
+                publish(bestSolution, index);
+            }
+
+            // Give up on a trajectory that is clearly worse than the incumbent, except trajectory 0, which always runs
+            // to the end like a single tabu search run does.
+            if (index != 0 && i >= minIterations &&
+                    bestSolution.getTotalCost() > this.incumbent.get().solution.getTotalCost() * (1 + ABANDON_GAP))
+                break;
+        }
+    }
+
+    /**
+     * Makes the best solution of a trajectory the incumbent, if it is better than the current one. Among trajectories
+     * with equal costs the one with the smaller index wins, so that the result does not depend on the order the
+     * threads finish. A solution that only equals the initial one is not published.
+     */
+    private void publish(SolutionSnapshot bestSolution, int index) {
+        Incumbent candidate = null;
+
+        while (true) {
+            Incumbent current = this.incumbent.get();
+            double cost = bestSolution.getTotalCost();
+
+            if (cost > current.solution.getTotalCost() ||
+                    (cost == current.solution.getTotalCost() && (current.trajectory == -1 || current.trajectory <= index)))
+                return;
+
+            // The snapshot shares its routes, which are never changed, so publishing it does not copy any route.
+            if (candidate == null)
+                candidate = new Incumbent(bestSolution.toSolution(), index);
+
+            if (this.incumbent.compareAndSet(current, candidate))
+                return;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package component6;
+
+import component1.Solution;
+import component1.SolutionSnapshot;
+import component2.DistanceMatrix;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+import component4.IntraRelocationMove;
+import component5.InterRelocationMove;
+import metrics.SearchMetrics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An anytime solver: it runs the tabu search within a wall-clock and an iteration budget, and returns the best
+ * solution found as soon as either of them runs out.
+ *
+ * The deadline is also checked within the neighborhood searches, so an iteration that would exceed it is cut short
+ * and discarded, instead of delaying the result. Every new best solution is pushed to the listener, if any, from a
+ * separate thread.
+ */
+public class Solver {
+
+    /**
+     * The default tabu horizon.
+     */
+    private static final int DEFAULT_HORIZON = 20;
+
+    /**
+     * An improvement that is waiting to be delivered to the listener.
+     */
+    private static final class Improvement {
+
+        private final Solution solution;
+
+        private final int iteration;
+
+        private final long elapsedNanos;
+
+        Improvement(Solution solution, int iteration, long elapsedNanos) {
+            this.solution = solution;
+            this.iteration = iteration;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    /**
+     * The distance matrix of the solutions given to solve(Solution, ...). An instance is solved with its own matrix.
+     */
+    private final DistanceMatrix distanceMatrix;
+
+    /**
+     * The tabu horizon
+     */
+    private final int horizon;
+
+    /**
+     * The number of threads that evaluate the neighborhoods
+     */
+    private final int parallelism;
+
+    /**
+     * The listener of the improvements, or null.
+     */
+    private volatile SolverListener listener;
+
+    /**
+     * The metrics of the searches, or null.
+     */
+    private volatile SearchMetrics metrics;
+
+    /**
+     * The latest improvement that has not been delivered yet, or null.
+     */
+    private final AtomicReference<Improvement> pending = new AtomicReference<>();
+
+    /**
+     * The thread that calls the listener. It is created with the first improvement to deliver.
+     */
+    private ExecutorService notifier;
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix of the solutions to improve
+     */
+    public Solver(DistanceMatrix distanceMatrix) {
+        this(distanceMatrix, DEFAULT_HORIZON, 1);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param distanceMatrix The distance matrix of the solutions to improve
+     * @param horizon The tabu horizon
+     * @param parallelism The number of threads that evaluate the neighborhoods
+     */
+    public Solver(DistanceMatrix distanceMatrix, int horizon, int parallelism) {
+        this.distanceMatrix = distanceMatrix;
+        this.horizon = horizon;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the listener of the improvements.
+     *
+     * @param listener The listener, or null for none.
+     */
+    public void setListener(SolverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the metrics that the solver reports to: the counters of the neighborhood searches, the new best solutions,
+     * and the time of every phase of every iteration.
+     *
+     * @param metrics The metrics, or null for none.
+     */
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Builds the greedy solution of an instance and improves it within the budget, with the distance matrix of the
+     * instance. The time of the greedy construction counts against the time budget.
+     *
+     * @param instance The instance to be solved
+     * @param timeBudgetMillis The wall-clock budget in milliseconds, or Long.MAX_VALUE for none
+     * @param maxIterations The maximum number of tabu search iterations
+     * @return Solution, the best solution found.
+     */
+    public Solution solve(ProblemInitializer instance, long timeBudgetMillis, int maxIterations) {
+        TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(this.horizon, instance.getDistanceMatrix(), this.parallelism);
+
+        try {
+            return solve(instance, timeBudgetMillis, maxIterations, tabuSearchVRP);
+        } finally {
+            tabuSearchVRP.shutdown();
+        }
+    }
+
+    /**
+     * Builds the greedy solution of an instance and improves it within the budget, with a tabu search that is kept
+     * from instance to instance, e.g. one per thread of BatchSolver, so that its tabu memory is not allocated again.
+     * The tabu search is reset to the distance matrix of the instance, and it is not shut down.
+     *
+     * @param instance The instance to be solved
+     * @param timeBudgetMillis The wall-clock budget in milliseconds
+     * @param maxIterations The maximum number of tabu search iterations
+     * @param tabuSearchVRP The tabu search
+     * @return Solution, the best solution found.
+     */
+    Solution solve(ProblemInitializer instance, long timeBudgetMillis, int maxIterations, TabuSearchVRP tabuSearchVRP) {
+        long start = System.nanoTime();
+        Solution initialSolution = new GreedyVRP(instance).findSolution();
+
+        SearchMetrics metrics = this.metrics;
+        if (metrics != null)
+            metrics.record(SearchMetrics.Phase.CONSTRUCT, System.nanoTime() - start);
+
+        return solve(initialSolution, instance.getDistanceMatrix(), start, timeBudgetMillis, maxIterations,
+                tabuSearchVRP);
+    }
+
+    /**
+     * Improves a solution within the budget, with the distance matrix of this solver.
+     *
+     * @param initialSolution The initial solution. It is not changed.
+     * @param timeBudgetMillis The wall-clock budget in milliseconds, or Long.MAX_VALUE for none
+     * @param maxIterations The maximum number of tabu search iterations
+     * @return Solution, the best solution found.
+     */
+    public Solution solve(Solution initialSolution, long timeBudgetMillis, int maxIterations) {
+        long start = System.nanoTime();
+        TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(this.horizon, this.distanceMatrix, this.parallelism);
+
+        try {
+            return solve(initialSolution, this.distanceMatrix, start, timeBudgetMillis, maxIterations, tabuSearchVRP);
+        } finally {
+            tabuSearchVRP.shutdown();
+        }
+    }
+
+    /**
+     * Stops the thread that calls the listener.
+     */
+    public synchronized void shutdown() {
+        if (this.notifier != null)
+            this.notifier.shutdown();
+    }
+
+    /**
+     * Runs the tabu search, exactly like TestComponent6 does, until the budget runs out.
+     */
+    private Solution solve(Solution initialSolution, DistanceMatrix distanceMatrix, long start, long timeBudgetMillis,
+                           int maxIterations, TabuSearchVRP tabuSearchVRP) {
+        // The conversion saturates, so a budget too large to be counted in nanoseconds means no deadline at all.
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        long deadline = budgetNanos == Long.MAX_VALUE ? TabuSearchVRP.NO_DEADLINE : start + budgetNanos;
+
+        Solution solution = initialSolution.cloneSolution();
+        SolutionSnapshot bestSolution = new SolutionSnapshot(solution);
+        tabuSearchVRP.reset(distanceMatrix);
+        tabuSearchVRP.setDeadline(deadline);
+
+        // The phases are timed only if there are metrics to report to.
+        SearchMetrics metrics = this.metrics;
+        tabuSearchVRP.setMetrics(metrics);
+        long time = System.nanoTime();
+
+        notify(bestSolution, 0, start);
+
+        for (int i = 1; i <= maxIterations; i++) {
+            BestRelocationMoves moves = tabuSearchVRP.findBestRelocationMoves(solution, i, bestSolution.getSolution());
+            time = record(metrics, SearchMetrics.Phase.NEIGHBORHOOD_SCAN, time);
+
+            // The searches were cut short, so the moves may not be the best ones: discard them.
+            if (tabuSearchVRP.isExpired())
+                break;
+
+            IntraRelocationMove intraRelocationMove = moves.getIntraRelocationMove();
+            InterRelocationMove interRelocationMove = moves.getInterRelocationMove();
+
+            // Every move is tabu
+            if (intraRelocationMove.getCost() == Double.MAX_VALUE && interRelocationMove.getCost() == Double.MAX_VALUE)
+                break;
+
+            if (intraRelocationMove.getCost() < interRelocationMove.getCost()) {
+                tabuSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove, i);
+                bestSolution.markDirty(intraRelocationMove.getRoute());
+            } else {
+                tabuSearchVRP.applyInterRelocationMove(solution, interRelocationMove, i);
+                bestSolution.markDirty(interRelocationMove.getRouteFrom());
+                bestSolution.markDirty(interRelocationMove.getRouteTo());
+            }
+            time = record(metrics, SearchMetrics.Phase.APPLY, time);
+
+            if (solution.getTotalCost() < bestSolution.getTotalCost()) {
+                bestSolution.update();
+                notify(bestSolution, i, start);
+                time = record(metrics, SearchMetrics.Phase.CLONE, time);
+
+                if (metrics != null)
+                    metrics.add(SearchMetrics.Counter.BEST_IMPROVEMENTS, 1);
+            }
+        }
+
+        return bestSolution.toSolution();
+    }
+
+    /**
+     * Records the time since the previous phase ended as the time of the given phase, if there are metrics.
+     *
+     * @return The end of the phase, which is the start of the next one.
+     */
+    private static long record(SearchMetrics metrics, SearchMetrics.Phase phase, long start) {
+        if (metrics == null)
+            return start;
+
+        long end = System.nanoTime();
+        metrics.record(phase, end - start);
+        return end;
+    }
+
+    /**
+     * Hands a new best solution over to the thread of the listener, without waiting for it. Only the latest
+     * improvement is kept, and a delivery is scheduled only if none is scheduled already.
+     */
+    private void notify(SolutionSnapshot bestSolution, int iteration, long start) {
+        if (this.listener == null)
+            return;
+
+        Improvement improvement = new Improvement(bestSolution.toSolution(), iteration, System.nanoTime() - start);
+
+        if (this.pending.getAndSet(improvement) == null)
+            notifier().execute(new Runnable() {
+                @Override
+                public void run() {
+                    Improvement latest = pending.getAndSet(null);
+                    SolverListener listener = Solver.this.listener;
+
+                    if (latest != null && listener != null)
+                        listener.onImprovement(latest.solution, latest.iteration, latest.elapsedNanos);
+                }
+            });
+    }
+
+    /**
+     * Returns the thread that calls the listener, creating it the first time.
+     */
+    private synchronized ExecutorService notifier() {
+        if (this.notifier == null)
+            this.notifier = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "solver-listener");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+        return this.notifier;
+    }
+}
@@ -0,0 +1,21 @@
+package component6;
+
+import component1.Solution;
+
+/**
+ * Receives the improvements that a Solver finds while it runs.
+ *
+ * The listener is called on a thread of its own, never on the thread of the search, so a slow listener does not slow
+ * down the search. If it is slower than the improvements, the ones in between are skipped, and it receives the latest.
+ */
+public interface SolverListener {
+
+    /**
+     * Called when the solver finds a solution better than every previous one.
+     *
+     * @param solution The new best solution. Its routes are shared with the solver, so it must not be changed.
+     * @param iteration The tabu search iteration that found it, or 0 for the initial solution.
+     * @param elapsedNanos The time since the solver started.
+     */
+    void onImprovement(Solution solution, int iteration, long elapsedNanos);
+}
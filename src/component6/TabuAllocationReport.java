@@ -0,0 +1,73 @@
+package component6;
+
+import component1.Solution;
+import component1.SolutionSnapshot;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+import component4.IntraRelocationMove;
+import component5.InterRelocationMove;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the current thread during every tabu search iteration. Apart from the two move
+ * objects returned by the neighborhood searches, the evaluation of the candidate moves must not allocate anything, so
+ * the bytes per iteration must not grow with the size of the instance, which is checked on 1000 and 3000 customers.
+ */
+class TabuAllocationReport {
+
+    /**
+     * The maximum number of bytes that an iteration may allocate: the two move objects and some slack for the JVM.
+     */
+    private static final long MAX_BYTES_PER_ITERATION = 1024;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int size: new int[]{1000, 3000}) {
+            GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, size, size * 3 / 10));
+            Solution solution = greedyVRP.findSolution();
+            SolutionSnapshot bestSolution = new SolutionSnapshot(solution);
+            TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(20, greedyVRP.getDistanceMatrix());
+
+            int tabuIterations = 200;
+            long maxBytes = 0;
+
+            for (int i = 1; i <= tabuIterations; i++) {
+                long before = threadMXBean.getThreadAllocatedBytes(threadId);
+
+                IntraRelocationMove intraRelocationMove =
+                        tabuSearchVRP.findBestIntraRelocationMove(solution, i, bestSolution.getSolution());
+                InterRelocationMove interRelocationMove =
+                        tabuSearchVRP.findBestInterRelocationMove(solution, i, bestSolution.getSolution());
+
+                long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+                // The first iterations run in the interpreter, which may allocate on its own.
+                if (i > tabuIterations / 2)
+                    maxBytes = Math.max(maxBytes, allocated);
+
+                if (intraRelocationMove.getCost() < interRelocationMove.getCost()) {
+                    tabuSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove, i);
+                    bestSolution.markDirty(intraRelocationMove.getRoute());
+                } else {
+                    tabuSearchVRP.applyInterRelocationMove(solution, interRelocationMove, i);
+                    bestSolution.markDirty(interRelocationMove.getRouteFrom());
+                    bestSolution.markDirty(interRelocationMove.getRouteTo());
+                }
+
+                if (solution.getTotalCost() < bestSolution.getTotalCost())
+                    bestSolution.update();
+            }
+
+            System.out.println(size + " customers - maximum bytes allocated by the move evaluation of an iteration: " +
+                    maxBytes);
+
+            if (maxBytes > MAX_BYTES_PER_ITERATION)
+                throw new IllegalStateException(size + " customers: the move evaluation allocates " + maxBytes +
+                        " bytes per iteration");
+        }
+    }
+}
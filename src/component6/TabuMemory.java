@@ -0,0 +1,248 @@
+package component6;
+
+import java.util.Arrays;
+
+/**
+ * The tabu arcs of a tabu search. An arc (from, to) is tabu up to and including the iteration "expiry" that it was
+ * last marked with, exactly like a cell of an n x n matrix of expiries initialized to -1, but only the arcs that may
+ * still be tabu are kept.
+ *
+ * The arcs are kept in an open-addressing hash map from the arc to its expiry, and in a ring buffer in the order they
+ * were marked. Every arc is marked with the current iteration plus the horizon, so the ring buffer is also ordered by
+ * expiry: when an arc is marked, the ones at the head that have expired are removed. At most 3 arcs are marked per
+ * iteration, so the memory is O(horizon) instead of O(n^2).
+ *
+ * The iterations must not decrease from one call to the next, which is how the tabu search uses them. Lookups do not
+ * change anything, so they may run in parallel, as long as no arc is marked at the same time.
+ */
+final class TabuMemory {
+
+    /**
+     * The key of an empty slot of the map. The keys of the arcs are never negative.
+     */
+    private static final long EMPTY = -1L;
+
+    /**
+     * The expiry of an arc that has never been marked.
+     */
+    private static final int NEVER = -1;
+
+    /**
+     * The number of arcs marked by a move.
+     */
+    private static final int ARCS_PER_MOVE = 3;
+
+    /**
+     * The number of iterations that an arc stays tabu after it is marked.
+     */
+    private final int horizon;
+
+    /**
+     * The keys of the map, or EMPTY.
+     */
+    private long[] keys;
+
+    /**
+     * The expiry of every key of the map.
+     */
+    private int[] expiries;
+
+    /**
+     * The number of arcs in the map.
+     */
+    private int size;
+
+    /**
+     * The arcs in the order they were marked, and the expiry they were marked with.
+     */
+    private long[] markedKeys;
+
+    private int[] markedExpiries;
+
+    /**
+     * The index of the oldest mark, and the number of marks.
+     */
+    private int head, marks;
+
+    /**
+     * Constructor
+     *
+     * @param horizon The number of iterations that an arc stays tabu after it is marked
+     */
+    TabuMemory(int horizon) {
+        this.horizon = horizon;
+
+        // The arcs of the last horizon + 1 iterations may still be tabu.
+        int capacity = Integer.highestOneBit(Math.max(ARCS_PER_MOVE * (Math.max(horizon, 0) + 1), 2) - 1) << 1;
+        this.markedKeys = new long[capacity];
+        this.markedExpiries = new int[capacity];
+        allocate(2 * capacity);
+    }
+
+    /**
+     * Checks if an arc is tabu in the given iteration.
+     *
+     * @param from The node that the arc starts
+     * @param to The node that the arc ends
+     * @param iteration The number of iteration
+     * @return True if the arc was marked with an expiry of at least this iteration
+     */
+    boolean isTabu(int from, int to, int iteration) {
+        return iteration <= getExpiry(from, to);
+    }
+
+    /**
+     * Marks an arc as tabu for the next "horizon" iterations.
+     *
+     * @param from The node that the arc starts
+     * @param to The node that the arc ends
+     * @param iteration The number of iteration
+     */
+    void mark(int from, int to, int iteration) {
+        int expiry = iteration + this.horizon;
+
+        // The arcs that expired before this iteration can never be tabu again.
+        while (this.marks > 0 && this.markedExpiries[this.head] < iteration) {
+            long key = this.markedKeys[this.head];
+
+            // Unless the arc was marked again since, it is removed.
+            int slot = find(key);
+            if (this.keys[slot] == key && this.expiries[slot] == this.markedExpiries[this.head])
+                remove(slot);
+
+            this.head = (this.head + 1) & (this.markedKeys.length - 1);
+            this.marks--;
+        }
+
+        if (this.marks == this.markedKeys.length)
+            growMarks();
+
+        long key = key(from, to);
+        int tail = (this.head + this.marks) & (this.markedKeys.length - 1);
+        this.markedKeys[tail] = key;
+        this.markedExpiries[tail] = expiry;
+        this.marks++;
+
+        int slot = find(key);
+        if (this.keys[slot] != key) {
+            this.keys[slot] = key;
+            this.size++;
+        }
+        this.expiries[slot] = expiry;
+
+        if (2 * this.size > this.keys.length)
+            rehash(2 * this.keys.length);
+    }
+
+    /**
+     * Forgets every tabu arc, so that the memory can be reused by another search. The iterations may start over.
+     */
+    void clear() {
+        Arrays.fill(this.keys, EMPTY);
+        this.size = 0;
+        this.head = 0;
+        this.marks = 0;
+    }
+
+    /**
+     * Returns the number of arcs that are kept.
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the expiry of an arc, or NEVER.
+     */
+    private int getExpiry(int from, int to) {
+        long key = key(from, to);
+        int slot = find(key);
+        return this.keys[slot] == key ? this.expiries[slot] : NEVER;
+    }
+
+    private static long key(int from, int to) {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns the slot of a key, or the empty slot where it would be inserted.
+     */
+    private int find(long key) {
+        int mask = this.keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (this.keys[slot] != EMPTY && this.keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Removes the key of a slot, shifting back the keys after it that would not be found otherwise.
+     */
+    private void remove(int slot) {
+        int mask = this.keys.length - 1;
+        int hole = slot;
+        int next = (slot + 1) & mask;
+
+        while (this.keys[next] != EMPTY) {
+            int home = hash(this.keys[next]) & mask;
+
+            // The key can fill the hole if the hole is between its home slot and its current slot.
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.expiries[hole] = this.expiries[next];
+                hole = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        this.keys[hole] = EMPTY;
+        this.size--;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.expiries = new int[capacity];
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = this.keys;
+        int[] oldExpiries = this.expiries;
+        allocate(capacity);
+
+        for (int s = 0; s < oldKeys.length; s++) {
+            if (oldKeys[s] != EMPTY) {
+                int slot = find(oldKeys[s]);
+                this.keys[slot] = oldKeys[s];
+                this.expiries[slot] = oldExpiries[s];
+            }
+        }
+    }
+
+    /**
+     * Doubles the ring buffer. It only happens if more arcs than expected are marked per iteration.
+     */
+    private void growMarks() {
+        int capacity = this.markedKeys.length;
+        long[] newKeys = new long[2 * capacity];
+        int[] newExpiries = new int[2 * capacity];
+
+        for (int m = 0; m < this.marks; m++) {
+            newKeys[m] = this.markedKeys[(this.head + m) & (capacity - 1)];
+            newExpiries[m] = this.markedExpiries[(this.head + m) & (capacity - 1)];
+        }
+
+        this.markedKeys = newKeys;
+        this.markedExpiries = newExpiries;
+        this.head = 0;
+    }
+}
@@ -0,0 +1,58 @@
+package component6;
+
+import benchmark.BenchmarkRunner;
+import component1.Solution;
+import component1.SolutionSnapshot;
+import component2.DistanceMatrix;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+
+/**
+ * Benchmarks a fixed-length tabu search run, starting from the greedy solution. Every operation builds its own tabu
+ * search (and thus its own tabu memory) and copy of the initial solution, exactly like a real run does.
+ */
+class TabuSearchBenchmark {
+
+    /**
+     * The number of tabu search iterations of every run.
+     */
+    private static final int TABU_ITERATIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        for (int size: BenchmarkRunner.sizes(args)) {
+            GreedyVRP greedyVRP = new GreedyVRP(new ProblemInitializer(61092, size, size));
+            final Solution initialSolution = greedyVRP.findSolution();
+            final DistanceMatrix distanceMatrix = greedyVRP.getDistanceMatrix();
+
+            BenchmarkRunner.run("TabuSearchVRP (" + TABU_ITERATIONS + " iterations)", size,
+                    () -> run(initialSolution, distanceMatrix));
+        }
+    }
+
+    /**
+     * Runs the tabu search for a fixed number of iterations and returns the best solution found.
+     */
+    static Solution run(Solution initialSolution, DistanceMatrix distanceMatrix) {
+        Solution solution = initialSolution.cloneSolution();
+        SolutionSnapshot bestSolution = new SolutionSnapshot(solution);
+        TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(20, distanceMatrix);
+
+        for (int i = 1; i <= TABU_ITERATIONS; i++) {
+            BestRelocationMoves moves = tabuSearchVRP.findBestRelocationMoves(solution, i, bestSolution.getSolution());
+
+            if (moves.getIntraRelocationMove().getCost() < moves.getInterRelocationMove().getCost()) {
+                tabuSearchVRP.applyIntraRelocationMove(solution, moves.getIntraRelocationMove(), i);
+                bestSolution.markDirty(moves.getIntraRelocationMove().getRoute());
+            } else {
+                tabuSearchVRP.applyInterRelocationMove(solution, moves.getInterRelocationMove(), i);
+                bestSolution.markDirty(moves.getInterRelocationMove().getRouteFrom());
+                bestSolution.markDirty(moves.getInterRelocationMove().getRouteTo());
+            }
+
+            if (solution.getTotalCost() < bestSolution.getTotalCost())
+                bestSolution.update();
+        }
+
+        return bestSolution.toSolution();
+    }
+}
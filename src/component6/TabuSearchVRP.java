@@ -2,8 +2,17 @@ package component6;
 
 import component1.Node;
 import component1.Solution;
+import component2.DistanceMatrix;
 import component4.IntraRelocationMove;
 import component5.InterRelocationMove;
+import metrics.SearchMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * @author Stamatis Pitsios
@@ -13,43 +22,82 @@ import component5.InterRelocationMove;
  */
 class TabuSearchVRP {
 
-    /**
-     * The number of iterations that a move will be labeled as tabu.
-     */
-    private final int tabuHorizon;
-
     /**
      * The distance matrix
      */
-    private double[][] distanceMatrix;
+    private DistanceMatrix distanceMatrix;
 
     /**
-     * A 2D matrix that will keep the tabu arcs.
+     * The tabu arcs.
      */
-    private int[][] tabuMatrix;
+    private TabuMemory tabuMemory;
 
     /**
      * TOLERANCE: a very small positive value just to be sure about the various comparisons
      */
     private static final double TOLERANCE = 0.000001;
 
+    /**
+     * The capacity that every route has left, refilled in place at the start of every inter-route search, so that the
+     * iterations do not allocate.
+     */
+    private int[] residualCapacities;
+
+    /**
+     * The pool of threads that evaluate the neighborhoods in parallel. If it is null, the search runs on the calling
+     * thread.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The number of threads of the pool.
+     */
+    private int parallelism = 1;
+
+    /**
+     * The value of System.nanoTime() after which the neighborhood searches stop early, or NO_DEADLINE. It is set
+     * before the searches are submitted to the pool, so the threads of the pool see it without synchronization.
+     */
+    private long deadline = NO_DEADLINE;
+
+    /**
+     * No deadline
+     */
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * The metrics that the neighborhood searches report to, or null.
+     */
+    private SearchMetrics metrics;
+
     /**
      * Constructor
      *
      * @param horizon The tabu horizon
      * @param distanceMatrix The distance matrix
      */
-    TabuSearchVRP(int horizon, double[][] distanceMatrix) {
-        this.tabuHorizon = horizon;
-        this.distanceMatrix = distanceMatrix;
+    TabuSearchVRP(int horizon, DistanceMatrix distanceMatrix) {
+        this(horizon, distanceMatrix, 1);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param horizon The tabu horizon
+     * @param distanceMatrix The distance matrix
+     * @param parallelism The number of threads that will evaluate the neighborhoods
+     */
+    TabuSearchVRP(int horizon, DistanceMatrix distanceMatrix, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
 
-        this.tabuMatrix = new int[this.distanceMatrix.length][this.distanceMatrix.length];
+        this.parallelism = parallelism;
+        if (parallelism > 1)
+            this.pool = new ForkJoinPool(parallelism);
 
-        for (int i = 0; i < this.tabuMatrix.length; i++) {
-            for (int j = 0; j < this.tabuMatrix.length; j++) {
-                this.tabuMatrix[i][j] = -1;
-            }
-        }
+        this.distanceMatrix = distanceMatrix;
+
+        this.tabuMemory = new TabuMemory(horizon);
     }
 
     /**
@@ -60,12 +108,28 @@ class TabuSearchVRP {
      * @return IntraRelocationMove the best possible intra relocation move
      */
     IntraRelocationMove findBestIntraRelocationMove(Solution solution, int iteration, Solution bestSolution) {
+        return findBestIntraRelocationMove(solution, iteration, bestSolution, 0, solution.getRoutes().size());
+    }
+
+    /**
+     * Finds the best intra-route relocation move within the routes [firstRoute, lastRoute).
+     * Among moves of equal cost, the first one in (route, customer, position) order is kept.
+     */
+    private IntraRelocationMove findBestIntraRelocationMove(Solution solution, int iteration, Solution bestSolution,
+                                                           int firstRoute, int lastRoute) {
 
         // Create an IntraRelocationMove object
         IntraRelocationMove relocationMove = new IntraRelocationMove();
 
-        // Loop for every vehicle that serves a set of customers
-        for (int i = 0; i < solution.getRoutes().size(); i++) {
+        // The counts of this scan, reported to the metrics at the end
+        long evaluated = 0, tabuRejections = 0, aspirationOverrides = 0;
+
+        // Loop for every vehicle of the given range
+        for (int i = firstRoute; i < lastRoute; i++) {
+
+            // Out of time: the move found so far is returned, and the caller must not rely on it being the best.
+            if (isExpired())
+                break;
 
             // Loop for every customer in the current route
             for (int j = 1; j <solution.getRoutes().get(i).getRoute().size() - 1; j++) {
@@ -86,6 +150,8 @@ class TabuSearchVRP {
                     if (j == k || k == j - 1)
                         continue;
 
+                    evaluated++;
+
                     // The node after which "relocatedCustomer" is going to be inserted.
                     Node after = solution.getRoutes().get(i).getRoute().get(k);
 
@@ -93,24 +159,32 @@ class TabuSearchVRP {
                     Node afterSuccessor = solution.getRoutes().get(i).getRoute().get(k + 1);
 
                     // Calculate the cost of the solution, if we apply the specific relocation move.
-                    double costRemoved = this.distanceMatrix[predecessor.getId()][relocatedCustomer.getId()] +
-                            this.distanceMatrix[relocatedCustomer.getId()][successor.getId()] +
-                            this.distanceMatrix[after.getId()][afterSuccessor.getId()];
+                    double costRemoved = this.distanceMatrix.getDistance(predecessor.getId(), relocatedCustomer.getId()) +
+                            this.distanceMatrix.getDistance(relocatedCustomer.getId(), successor.getId()) +
+                            this.distanceMatrix.getDistance(after.getId(), afterSuccessor.getId());
 
-                    double costAdded = this.distanceMatrix[after.getId()][relocatedCustomer.getId()] +
-                            this.distanceMatrix[relocatedCustomer.getId()][afterSuccessor.getId()] +
-                            this.distanceMatrix[predecessor.getId()][successor.getId()];
+                    double costAdded = this.distanceMatrix.getDistance(after.getId(), relocatedCustomer.getId()) +
+                            this.distanceMatrix.getDistance(relocatedCustomer.getId(), afterSuccessor.getId()) +
+                            this.distanceMatrix.getDistance(predecessor.getId(), successor.getId());
 
                     double newCost = costAdded - costRemoved;
 
-                    // Create the tabu move
-                    TabuArc arc1 = new TabuArc(relocatedCustomer.getId(), afterSuccessor.getId());
-                    TabuArc arc2 = new TabuArc(predecessor.getId(), successor.getId());
-                    TabuArc arc3 = new TabuArc(after.getId(), relocatedCustomer.getId());
+                    // If the move is the best found so far, store it. The arcs that the move creates are passed as
+                    // plain ids, so that no object is allocated for every candidate move.
+                    if (newCost < relocationMove.getCost()) {
+                        if (isTabuMove(relocatedCustomer.getId(), afterSuccessor.getId(),
+                                predecessor.getId(), successor.getId(),
+                                after.getId(), relocatedCustomer.getId(),
+                                iteration, solution, bestSolution, newCost)) {
+                            tabuRejections++;
+                            continue;
+                        }
+
+                        // Allowed only by the aspiration criterion
+                        if (this.metrics != null && areTabuArcs(relocatedCustomer.getId(), afterSuccessor.getId(),
+                                predecessor.getId(), successor.getId(), after.getId(), relocatedCustomer.getId(), iteration))
+                            aspirationOverrides++;
 
-                    // If the move is the best found so far, store it
-                    if (newCost < relocationMove.getCost() &&
-                            !isTabuMove(arc1, arc2, arc3, iteration, solution, bestSolution, newCost)) {
                         relocationMove.setCost(newCost);
                         relocationMove.setRoute(i);
                         relocationMove.setCustomerPosition(j);
@@ -120,6 +194,8 @@ class TabuSearchVRP {
             }
         }
 
+        report(evaluated, 0, tabuRejections, aspirationOverrides);
+
         return relocationMove;
     }
 
@@ -138,12 +214,9 @@ class TabuSearchVRP {
         Node successor = solution.getRoutes().get(move.getRoute()).getRoute().get(move.getCustomerPosition() + 1);
         Node after = solution.getRoutes().get(move.getRoute()).getRoute().get(move.getRelocationPosition());
         Node afterSuccessor = solution.getRoutes().get(move.getRoute()).getRoute().get(move.getRelocationPosition() + 1);
-        TabuArc arc1 = new TabuArc(predecessor.getId(), relocatedCustomer.getId());
-        TabuArc arc2 = new TabuArc(relocatedCustomer.getId(), successor.getId());
-        TabuArc arc3 = new TabuArc(after.getId(), afterSuccessor.getId());
-        this.tabuMatrix[arc1.getFrom()][arc1.getTo()] = iteration + this.tabuHorizon;
-        this.tabuMatrix[arc2.getFrom()][arc2.getTo()] = iteration + this.tabuHorizon;
-        this.tabuMatrix[arc3.getFrom()][arc3.getTo()] = iteration + this.tabuHorizon;
+        this.tabuMemory.mark(predecessor.getId(), relocatedCustomer.getId(), iteration);
+        this.tabuMemory.mark(relocatedCustomer.getId(), successor.getId(), iteration);
+        this.tabuMemory.mark(after.getId(), afterSuccessor.getId(), iteration);
 
         // Update the cost of the whole solution
         solution.setTotalCost(solution.getTotalCost() + move.getCost());
@@ -169,16 +242,38 @@ class TabuSearchVRP {
      * @return InterRelocationMove the best possible inter relocation move
      */
     InterRelocationMove findBestInterRelocationMove(Solution solution, int iteration, Solution bestSolution) {
+        this.residualCapacities = solution.getResidualCapacities(this.residualCapacities);
+
+        return findBestInterRelocationMove(solution, iteration, bestSolution, this.residualCapacities, 0,
+                solution.getRoutes().size());
+    }
+
+    /**
+     * Finds the best inter-route relocation move that takes a customer out of one of the routes [firstRoute, lastRoute).
+     * Among moves of equal cost, the first one in (route, customer, route, position) order is kept. The capacity that
+     * every route has left is read from an array, instead of from the load and the capacity of every route.
+     */
+    private InterRelocationMove findBestInterRelocationMove(Solution solution, int iteration, Solution bestSolution,
+                                                           int[] residualCapacities, int firstRoute, int lastRoute) {
 
         // The best inter-relocation move found so far.
         InterRelocationMove move = new InterRelocationMove();
 
-        // Loop for every route of the solution
-        for (int i = 0; i < solution.getRoutes().size(); i++) {
+        // The counts of this scan, reported to the metrics at the end
+        long evaluated = 0, capacityRejections = 0, tabuRejections = 0, aspirationOverrides = 0;
+
+        // Loop for every route of the given range
+        search:
+        for (int i = firstRoute; i < lastRoute; i++) {
 
             // Loop for every customer within the i-th route
             for (int j = 1; j < solution.getRoutes().get(i).getRoute().size() - 1; j++) {
 
+                // Out of time: the move found so far is returned, and the caller must not rely on it being the best.
+                // A single customer is O(n) work, so reading the clock here costs next to nothing.
+                if (isExpired())
+                    break search;
+
                 // The customer to be relocated
                 Node relocatedCustomer = solution.getRoutes().get(i).getRoute().get(j);
 
@@ -196,12 +291,15 @@ class TabuSearchVRP {
                         continue;
 
                     // If the demand of the relocated customer cannot be served by the new vehicle, continue with the next one
-                    if (solution.getRoutes().get(k).getLoad() + relocatedCustomer.getDemand() >
-                            solution.getRoutes().get(k).getCapacity())
+                    if (residualCapacities[k] < relocatedCustomer.getDemand()) {
+                        capacityRejections += solution.getRoutes().get(k).getRoute().size() - 1;
                         continue;
+                    }
 
                     // Loop for every customer within the second route
                     for (int l = 0; l < solution.getRoutes().get(k).getRoute().size() - 1; l++) {
+                        evaluated++;
+
                         // The node after which "relocatedCustomer" is going to be inserted.
                         Node after = solution.getRoutes().get(k).getRoute().get(l);
 
@@ -209,35 +307,44 @@ class TabuSearchVRP {
                         Node afterSuccessor = solution.getRoutes().get(k).getRoute().get(l + 1);
 
                         // Calculate the cost of the solution, if we apply the specific relocation move.
-                        double costRemoved = this.distanceMatrix[predecessor.getId()][relocatedCustomer.getId()] +
-                                this.distanceMatrix[relocatedCustomer.getId()][successor.getId()] +
-                                this.distanceMatrix[after.getId()][afterSuccessor.getId()];
+                        double costRemoved = this.distanceMatrix.getDistance(predecessor.getId(), relocatedCustomer.getId()) +
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), successor.getId()) +
+                                this.distanceMatrix.getDistance(after.getId(), afterSuccessor.getId());
 
-                        double costAdded = this.distanceMatrix[after.getId()][relocatedCustomer.getId()] +
-                                this.distanceMatrix[relocatedCustomer.getId()][afterSuccessor.getId()] +
-                                this.distanceMatrix[predecessor.getId()][successor.getId()];
+                        double costAdded = this.distanceMatrix.getDistance(after.getId(), relocatedCustomer.getId()) +
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), afterSuccessor.getId()) +
+                                this.distanceMatrix.getDistance(predecessor.getId(), successor.getId());
 
                         // The new cost within route i
-                        double costI = this.distanceMatrix[predecessor.getId()][successor.getId()] -
-                                this.distanceMatrix[predecessor.getId()][relocatedCustomer.getId()] -
-                                this.distanceMatrix[relocatedCustomer.getId()][successor.getId()];
+                        double costI = this.distanceMatrix.getDistance(predecessor.getId(), successor.getId()) -
+                                this.distanceMatrix.getDistance(predecessor.getId(), relocatedCustomer.getId()) -
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), successor.getId());
 
                         // The new cost within route l
-                        double costL = this.distanceMatrix[after.getId()][relocatedCustomer.getId()] +
-                                this.distanceMatrix[relocatedCustomer.getId()][afterSuccessor.getId()] -
-                                this.distanceMatrix[after.getId()][afterSuccessor.getId()];
+                        double costL = this.distanceMatrix.getDistance(after.getId(), relocatedCustomer.getId()) +
+                                this.distanceMatrix.getDistance(relocatedCustomer.getId(), afterSuccessor.getId()) -
+                                this.distanceMatrix.getDistance(after.getId(), afterSuccessor.getId());
 
                         // The difference in the cost of the final solution
                         double newCost = costAdded - costRemoved;
 
-                        // Create the tabu move
-                        TabuArc arc1 = new TabuArc(relocatedCustomer.getId(), afterSuccessor.getId());
-                        TabuArc arc2 = new TabuArc(predecessor.getId(), successor.getId());
-                        TabuArc arc3 = new TabuArc(after.getId(), relocatedCustomer.getId());
+                        // If the move is the best found so far and it is not tabu, store the move. The arcs that the
+                        // move creates are passed as plain ids, so that no object is allocated for every candidate move.
+                        if (newCost < move.getCost()) {
+                            if (isTabuMove(relocatedCustomer.getId(), afterSuccessor.getId(),
+                                    predecessor.getId(), successor.getId(),
+                                    after.getId(), relocatedCustomer.getId(),
+                                    iteration, solution, bestSolution, newCost)) {
+                                tabuRejections++;
+                                continue;
+                            }
+
+                            // Allowed only by the aspiration criterion
+                            if (this.metrics != null && areTabuArcs(relocatedCustomer.getId(), afterSuccessor.getId(),
+                                    predecessor.getId(), successor.getId(), after.getId(), relocatedCustomer.getId(),
+                                    iteration))
+                                aspirationOverrides++;
 
-                        // If the move is the best found so far and it is not tabu, store the move.
-                        if (newCost < move.getCost() &&
-                                !isTabuMove(arc1, arc2, arc3, iteration, solution, bestSolution, newCost)) {
                             move.setRouteFrom(i);
                             move.setRouteTo(k);
                             move.setCustomerPosition(j);
@@ -251,10 +358,145 @@ class TabuSearchVRP {
             }
         }
 
+        report(evaluated, capacityRejections, tabuRejections, aspirationOverrides);
+
         // Return the move.
         return move;
     }
 
+    /**
+     * Finds the best intra-route and the best inter-route relocation moves of a given solution.
+     *
+     * In parallel mode the two neighborhoods are searched at the same time, each one split into consecutive ranges of
+     * routes. The tabu matrix and the two solutions are only read during the search. The best moves of the ranges are
+     * compared in the order of the ranges, keeping the first one on ties, so the result is exactly the pair of moves
+     * that the sequential search would find.
+     *
+     * @param solution The solution which we want to improve
+     * @param iteration The number of tabu search iteration
+     * @param bestSolution The best solution encountered so far
+     * @return BestRelocationMoves the best intra and inter relocation moves
+     */
+    BestRelocationMoves findBestRelocationMoves(final Solution solution, final int iteration, final Solution bestSolution) {
+        if (this.pool == null)
+            return new BestRelocationMoves(findBestIntraRelocationMove(solution, iteration, bestSolution),
+                    findBestInterRelocationMove(solution, iteration, bestSolution));
+
+        int routes = solution.getRoutes().size();
+        final int[] residualCapacities = this.residualCapacities =
+                solution.getResidualCapacities(this.residualCapacities);
+
+        // A few ranges per thread, so that a thread that gets long routes does not keep the others waiting.
+        int ranges = Math.min(routes, this.parallelism * 4);
+
+        List<Future<IntraRelocationMove>> intraResults = new ArrayList<>();
+        List<Future<InterRelocationMove>> interResults = new ArrayList<>();
+
+        // Submit the ranges of both neighborhoods, so that they are all evaluated at the same time.
+        for (int r = 0; r < ranges; r++) {
+            final int firstRoute = (int) ((long) routes * r / ranges);
+            final int lastRoute = (int) ((long) routes * (r + 1) / ranges);
+
+            intraResults.add(this.pool.submit(new Callable<IntraRelocationMove>() {
+                @Override
+                public IntraRelocationMove call() {
+                    return findBestIntraRelocationMove(solution, iteration, bestSolution, firstRoute, lastRoute);
+                }
+            }));
+
+            interResults.add(this.pool.submit(new Callable<InterRelocationMove>() {
+                @Override
+                public InterRelocationMove call() {
+                    return findBestInterRelocationMove(solution, iteration, bestSolution, residualCapacities,
+                            firstRoute, lastRoute);
+                }
+            }));
+        }
+
+        IntraRelocationMove intraRelocationMove = new IntraRelocationMove();
+        InterRelocationMove interRelocationMove = new InterRelocationMove();
+
+        try {
+            // Strictly better only, so that ties are resolved in favor of the earlier range.
+            for (Future<IntraRelocationMove> result: intraResults) {
+                IntraRelocationMove candidate = result.get();
+                if (candidate.getCost() < intraRelocationMove.getCost())
+                    intraRelocationMove = candidate;
+            }
+
+            for (Future<InterRelocationMove> result: interResults) {
+                InterRelocationMove candidate = result.get();
+                if (candidate.getCost() < interRelocationMove.getCost())
+                    interRelocationMove = candidate;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching the neighborhoods", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to search the neighborhoods", e.getCause());
+        }
+
+        return new BestRelocationMoves(intraRelocationMove, interRelocationMove);
+    }
+
+    /**
+     * Sets the time after which the neighborhood searches stop early and return the best move they have seen so far.
+     *
+     * @param deadline A value of System.nanoTime(), or NO_DEADLINE
+     */
+    void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns true if the deadline has passed.
+     */
+    boolean isExpired() {
+        return this.deadline != NO_DEADLINE && System.nanoTime() - this.deadline >= 0;
+    }
+
+    /**
+     * Sets the metrics that the neighborhood searches report to.
+     *
+     * @param metrics The metrics, or null for none
+     */
+    void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds the counts of a neighborhood scan to the metrics, if any.
+     */
+    private void report(long evaluated, long capacityRejections, long tabuRejections, long aspirationOverrides) {
+        if (this.metrics == null)
+            return;
+
+        this.metrics.add(SearchMetrics.Counter.MOVES_EVALUATED, evaluated);
+        this.metrics.add(SearchMetrics.Counter.CAPACITY_REJECTIONS, capacityRejections);
+        this.metrics.add(SearchMetrics.Counter.TABU_REJECTIONS, tabuRejections);
+        this.metrics.add(SearchMetrics.Counter.ASPIRATION_OVERRIDES, aspirationOverrides);
+    }
+
+    /**
+     * Prepares the search for another instance, keeping the memory it has already allocated. Every arc stops being
+     * tabu, the iterations may start over, and there is no deadline.
+     *
+     * @param distanceMatrix The distance matrix of the new instance
+     */
+    void reset(DistanceMatrix distanceMatrix) {
+        this.distanceMatrix = distanceMatrix;
+        this.tabuMemory.clear();
+        this.deadline = NO_DEADLINE;
+    }
+
+    /**
+     * Stops the threads of the parallel mode, if any.
+     */
+    void shutdown() {
+        if (this.pool != null)
+            this.pool.shutdown();
+    }
+
     /**
      * Applies an inter-route relocation move to a given solution
      *
@@ -269,12 +511,9 @@ class TabuSearchVRP {
         Node successor = solution.getRoutes().get(move.getRouteFrom()).getRoute().get(move.getCustomerPosition() + 1);
         Node after = solution.getRoutes().get(move.getRouteTo()).getRoute().get(move.getRelocationPosition());
         Node afterSuccessor = solution.getRoutes().get(move.getRouteTo()).getRoute().get(move.getRelocationPosition() + 1);
-        TabuArc arc1 = new TabuArc(predecessor.getId(), relocatedCustomer.getId());
-        TabuArc arc2 = new TabuArc(relocatedCustomer.getId(), successor.getId());
-        TabuArc arc3 = new TabuArc(after.getId(), afterSuccessor.getId());
-        this.tabuMatrix[arc1.getFrom()][arc1.getTo()] = iteration + this.tabuHorizon;
-        this.tabuMatrix[arc2.getFrom()][arc2.getTo()] = iteration + this.tabuHorizon;
-        this.tabuMatrix[arc3.getFrom()][arc3.getTo()] = iteration + this.tabuHorizon;
+        this.tabuMemory.mark(predecessor.getId(), relocatedCustomer.getId(), iteration);
+        this.tabuMemory.mark(relocatedCustomer.getId(), successor.getId(), iteration);
+        this.tabuMemory.mark(after.getId(), afterSuccessor.getId(), iteration);
 
         // Update the cost of the whole solution
         solution.setTotalCost(solution.getTotalCost() + move.getCost());
@@ -301,27 +540,38 @@ class TabuSearchVRP {
     /**
      * Checks if a move is Tabu.
      *
-     * @param arc1 The first arc
-     * @param arc2 The second arc
-     * @param arc3 The third arc
+     * @param from1 The node that the first arc starts
+     * @param to1 The node that the first arc ends
+     * @param from2 The node that the second arc starts
+     * @param to2 The node that the second arc ends
+     * @param from3 The node that the third arc starts
+     * @param to3 The node that the third arc ends
      * @param iteration The number of iteration
      * @param s The current solution of the Tabu Search Algorithm
      * @param bestSol The best solution encountered so far
      * @param moveCost The move cost of the current neighbor
      * @return True of False
      */
-    private boolean isTabuMove(TabuArc arc1, TabuArc arc2, TabuArc arc3, int iteration, Solution s, Solution bestSol, double moveCost) {
+    private boolean isTabuMove(int from1, int to1, int from2, int to2, int from3, int to3, int iteration, Solution s,
+                               Solution bestSol, double moveCost) {
 
         /*
          * First part is the aspiration criterion: if the move leads to the best solution ever encountered this move is NOT tabu
          *
-         * The other 3 parts of the condition check if all of the given arcs are marked as tabu in the current iteration.
+         * The other part checks if all 3 of the given arcs are marked as tabu in the current iteration.
          * If all of them are tabu, then do not allow the move.
          * But if at least one arc is not marked as tabu, then the move is not tabu.
          */
         return !(s.getTotalCost() + moveCost < bestSol.getTotalCost() - TOLERANCE ) &&
-                (iteration <= tabuMatrix[arc1.getFrom()][arc1.getTo()]) &&
-                (iteration <= tabuMatrix[arc2.getFrom()][arc2.getTo()]) &&
-                (iteration <= tabuMatrix[arc3.getFrom()][arc3.getTo()]);
+                areTabuArcs(from1, to1, from2, to2, from3, to3, iteration);
+    }
+
+    /**
+     * Checks if all three arcs of a move are marked as tabu in the given iteration.
+     */
+    private boolean areTabuArcs(int from1, int to1, int from2, int to2, int from3, int to3, int iteration) {
+        return this.tabuMemory.isTabu(from1, to1, iteration) &&
+                this.tabuMemory.isTabu(from2, to2, iteration) &&
+                this.tabuMemory.isTabu(from3, to3, iteration);
     }
 }
@@ -0,0 +1,47 @@
+package component6;
+
+import component2.ProblemInitializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Solves a batch of 200 small depots, with one solver thread per available core, and prints the throughput and the
+ * tail latency of the batch, split into the times the depots took to load, waited for a thread and took to solve.
+ * The first batch warms the JVM up, the second one is the one to look at.
+ */
+class TestBatch {
+
+    public static void main(String[] args) {
+        List<Callable<ProblemInitializer>> instances = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            final int seed = 61092 + i;
+            final int customers = 50 + (i * 37) % 101;
+
+            instances.add(new Callable<ProblemInitializer>() {
+                @Override
+                public ProblemInitializer call() {
+                    return new ProblemInitializer(seed, customers, customers);
+                }
+            });
+        }
+
+        BatchSolver batchSolver = new BatchSolver(Runtime.getRuntime().availableProcessors());
+
+        for (int batch = 1; batch <= 2; batch++) {
+            BatchSolver.BatchResult result = batchSolver.solve(instances, 20, 500);
+
+            double totalCost = 0;
+            for (int i = 0; i < result.size(); i++) {
+                if (result.getSolution(i) != null)
+                    totalCost += result.getSolution(i).getTotalCost();
+            }
+
+            System.out.printf("Batch %d - Total Cost: %.0f - %s%n", batch, totalCost, result);
+        }
+
+        batchSolver.shutdown();
+    }
+}
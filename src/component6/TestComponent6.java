@@ -1,6 +1,7 @@
 package component6;
 
 import component1.Solution;
+import component1.SolutionSnapshot;
 import component3.GreedyVRP;
 import component4.IntraRelocationMove;
 import component5.InterRelocationMove;
@@ -18,11 +19,12 @@ class TestComponent6 {
         // Find a greedy solution
         Solution solution = greedyVRP.findSolution();
 
-        // The best solution found
-        Solution bestSolution = solution.cloneSolution();
+        // The best solution found. Only the routes changed since the last best one are copied when it is updated.
+        SolutionSnapshot bestSolution = new SolutionSnapshot(solution);
 
-        // Initialize a LocalSearchVRP instance
-        TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(20, greedyVRP.getDistanceMatrix());
+        // Initialize a TabuSearchVRP instance, that evaluates the neighborhoods on every available core
+        TabuSearchVRP tabuSearchVRP = new TabuSearchVRP(20, greedyVRP.getDistanceMatrix(),
+                Runtime.getRuntime().availableProcessors());
 
         // The number of iterations that the tabu search algorithm will perform
         int tabuIterations = 200;
@@ -36,21 +38,24 @@ class TestComponent6 {
         // Repeat until no better solution found
         for (int i = 1; i <= tabuIterations; i++) {
 
-            // Find the best possible intra-relocation move
-            IntraRelocationMove intraRelocationMove = tabuSearchVRP.findBestIntraRelocationMove(solution, i, bestSolution);
+            // Find the best possible intra-relocation and inter-relocation moves
+            BestRelocationMoves moves = tabuSearchVRP.findBestRelocationMoves(solution, i, bestSolution.getSolution());
+            IntraRelocationMove intraRelocationMove = moves.getIntraRelocationMove();
+            InterRelocationMove interRelocationMove = moves.getInterRelocationMove();
 
-            // Find the best possible inter-relocation move
-            InterRelocationMove interRelocationMove = tabuSearchVRP.findBestInterRelocationMove(solution, i, bestSolution);
-
-            // Apply the best move between inter and intra
-            if (intraRelocationMove.getCost() < interRelocationMove.getCost())
+            // Apply the best move between inter and intra, and mark the routes it changed
+            if (intraRelocationMove.getCost() < interRelocationMove.getCost()) {
                 tabuSearchVRP.applyIntraRelocationMove(solution, intraRelocationMove, i);
-            else
+                bestSolution.markDirty(intraRelocationMove.getRoute());
+            } else {
                 tabuSearchVRP.applyInterRelocationMove(solution, interRelocationMove, i);
+                bestSolution.markDirty(interRelocationMove.getRouteFrom());
+                bestSolution.markDirty(interRelocationMove.getRouteTo());
+            }
 
             // If the current solution that came up is the best solution ever seen, store it
             if (solution.getTotalCost() < bestSolution.getTotalCost()) {
-                bestSolution = solution.cloneSolution();
+                bestSolution.update();
                 bestIteration = i;
             }
 
@@ -58,8 +63,10 @@ class TestComponent6 {
             //System.out.println("Iteration " + i + " - New Total Cost: " + solution.getTotalCost());
         }
 
+        tabuSearchVRP.shutdown();
+
         // Print the best solution found
         System.out.println("Best solution found at iteration " + bestIteration);
-        System.out.println(bestSolution);
+        System.out.println(bestSolution.toSolution());
     }
 }
@@ -0,0 +1,72 @@
+package component6;
+
+import component1.Node;
+import component1.Route;
+import component1.Solution;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+
+/**
+ * Solves a very large instance by decomposition, and compares it with the greedy solution. The distances are computed
+ * on the fly, since the full matrix would not fit in memory.
+ *
+ * Usage: TestDecomposition [customers] [cluster size] [milliseconds per subproblem]
+ */
+class TestDecomposition {
+
+    public static void main(String[] args) {
+        int customers = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int clusterSize = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        ProblemInitializer instance = ProblemInitializer.withDistanceOracle(61092, customers, customers, 0);
+
+        long start = System.nanoTime();
+        Solution greedy = new GreedyVRP(instance, true).findSolution();
+        System.out.printf("Greedy: %.0f (%d routes) in %.1f s%n", greedy.getTotalCost(), greedy.getRoutes().size(),
+                (System.nanoTime() - start) / 1e9);
+
+        DecompositionSolver solver = new DecompositionSolver(clusterSize, Runtime.getRuntime().availableProcessors());
+
+        start = System.nanoTime();
+        Solution solution = solver.solve(instance, budget, Integer.MAX_VALUE);
+        System.out.printf("Decomposition: %.0f (%d routes) in %.1f s%n", solution.getTotalCost(),
+                solution.getRoutes().size(), (System.nanoTime() - start) / 1e9);
+
+        solver.shutdown();
+
+        // Every customer must be served exactly once, and the costs must add up.
+        boolean[] served = new boolean[customers + 1];
+        double totalCost = 0;
+
+        for (Route route: solution.getRoutes()) {
+            double cost = 0;
+            int load = 0;
+
+            for (int i = 0; i < route.getRoute().size() - 1; i++) {
+                cost += instance.getDistanceMatrix().getDistance(route.getRoute().get(i).getId(),
+                        route.getRoute().get(i + 1).getId());
+            }
+
+            for (Node node: route.getRoute().subList(1, route.getRoute().size() - 1)) {
+                if (served[node.getId()])
+                    throw new IllegalStateException("Customer " + node.getId() + " is served twice");
+
+                served[node.getId()] = true;
+                load += node.getDemand();
+            }
+
+            if (Math.abs(cost - route.getCost()) > 1e-6 || load != route.getLoad() || load > route.getCapacity())
+                throw new IllegalStateException("Wrong cost or load of " + route);
+
+            totalCost += cost;
+        }
+
+        for (int i = 1; i <= customers; i++) {
+            if (!served[i])
+                throw new IllegalStateException("Customer " + i + " is not served");
+        }
+
+        System.out.printf("Checked: %.0f%n", totalCost);
+    }
+}
@@ -0,0 +1,41 @@
+package component6;
+
+import component1.Solution;
+import component3.GreedyVRP;
+
+/**
+ * Runs the same instance as TestComponent6 with the island model, one island per available core, in both topologies,
+ * and prints the iterations per second of every island.
+ */
+class TestIslands {
+
+    public static void main(String[] args) {
+
+        // Initialize a GreedyVRP instance
+        GreedyVRP greedyVRP = new GreedyVRP();
+
+        // Find a greedy solution
+        Solution solution = greedyVRP.findSolution();
+
+        // Print the initial cost found using greedy method
+        System.out.println("Initial Cost: " + solution.getTotalCost());
+
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        for (IslandSearchVRP.Topology topology: IslandSearchVRP.Topology.values()) {
+            IslandSearchVRP islands = new IslandSearchVRP(greedyVRP.getDistanceMatrix(), cores, 10, topology);
+
+            Solution bestSolution = islands.solve(solution,
+                    PortfolioSearchVRP.Trajectory.mix(cores, 61092, greedyVRP.getDistanceMatrix().getSize() - 1), 200);
+
+            islands.shutdown();
+
+            System.out.println(topology + " - Best Cost: " + bestSolution.getTotalCost());
+
+            double[] throughput = islands.getThroughput();
+            for (int i = 0; i < throughput.length; i++) {
+                System.out.printf("Island %d: %.0f iterations/s%n", i, throughput[i]);
+            }
+        }
+    }
+}
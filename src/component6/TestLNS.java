@@ -0,0 +1,63 @@
+package component6;
+
+import component1.Node;
+import component1.Route;
+import component1.Solution;
+import component2.ProblemInitializer;
+import component3.GreedyVRP;
+
+/**
+ * Improves the greedy solution of a 1000 customer instance with the large neighborhood search, and prints the
+ * iterations per second.
+ */
+class TestLNS {
+
+    public static void main(String[] args) {
+        ProblemInitializer instance = new ProblemInitializer(61092, 1000, 1000);
+        Solution solution = new GreedyVRP(instance).findSolution();
+
+        System.out.println("Initial Cost: " + solution.getTotalCost());
+
+        LargeNeighborhoodSearchVRP lns = new LargeNeighborhoodSearchVRP(instance.getDistanceMatrix(), 61092);
+
+        long start = System.nanoTime();
+        Solution bestSolution = lns.solve(solution, 20000);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Best Cost: %.0f - %d iterations (%d accepted), %.0f iterations/s%n",
+                bestSolution.getTotalCost(), lns.getIterations(), lns.getAcceptedIterations(),
+                lns.getIterations() / (elapsed / 1e9));
+
+        // The costs must add up, and every customer must be served exactly once.
+        boolean[] served = new boolean[instance.getDistanceMatrix().getSize()];
+        double totalCost = 0;
+
+        for (Route route: bestSolution.getRoutes()) {
+            int load = 0;
+
+            for (int i = 0; i < route.getRoute().size() - 1; i++) {
+                totalCost += instance.getDistanceMatrix().getDistance(route.getRoute().get(i).getId(),
+                        route.getRoute().get(i + 1).getId());
+            }
+
+            for (Node node: route.getRoute().subList(1, route.getRoute().size() - 1)) {
+                if (served[node.getId()])
+                    throw new IllegalStateException("Customer " + node.getId() + " is served twice");
+
+                served[node.getId()] = true;
+                load += node.getDemand();
+            }
+
+            if (load != route.getLoad() || load > route.getCapacity())
+                throw new IllegalStateException("Wrong load of " + route);
+        }
+
+        for (int i = 1; i < served.length; i++) {
+            if (!served[i])
+                throw new IllegalStateException("Customer " + i + " is not served");
+        }
+
+        if (Math.abs(totalCost - bestSolution.getTotalCost()) > 1e-6)
+            throw new IllegalStateException("Wrong cost " + bestSolution.getTotalCost() + ", it should be " + totalCost);
+    }
+}
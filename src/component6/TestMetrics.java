@@ -0,0 +1,40 @@
+package component6;
+
+import component1.Solution;
+import component2.ProblemInitializer;
+import metrics.MetricsSnapshot;
+import metrics.SearchMetrics;
+
+/**
+ * Solves an instance with the search metrics enabled and prints them, together with the rates that are used to tune
+ * the tabu horizon. The metrics are also registered with JMX, so they can be watched with JConsole while it runs.
+ */
+class TestMetrics {
+
+    public static void main(String[] args) {
+        ProblemInitializer instance = new ProblemInitializer(61092, 2000, 2000);
+        Solver solver = new Solver(instance.getDistanceMatrix());
+
+        SearchMetrics metrics = new SearchMetrics();
+        metrics.register("TestMetrics");
+        solver.setMetrics(metrics);
+
+        long start = System.nanoTime();
+        Solution bestSolution = solver.solve(instance, 2000, Integer.MAX_VALUE);
+        long elapsed = System.nanoTime() - start;
+
+        solver.shutdown();
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        long evaluated = snapshot.get(SearchMetrics.Counter.MOVES_EVALUATED);
+        long iterations = snapshot.getCount(SearchMetrics.Phase.APPLY);
+
+        System.out.println(snapshot);
+        System.out.printf("Best Cost: %.0f%n", bestSolution.getTotalCost());
+        System.out.printf("Moves evaluated per second: %.0f%n", evaluated / (elapsed / 1e9));
+        System.out.printf("Tabu rejections per iteration: %.2f%n",
+                (double) snapshot.get(SearchMetrics.Counter.TABU_REJECTIONS) / Math.max(iterations, 1));
+        System.out.printf("New best solutions per iteration: %.4f%n",
+                (double) snapshot.get(SearchMetrics.Counter.BEST_IMPROVEMENTS) / Math.max(iterations, 1));
+    }
+}
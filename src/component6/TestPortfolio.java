@@ -0,0 +1,35 @@
+package component6;
+
+import component1.Solution;
+import component3.GreedyVRP;
+
+/**
+ * Runs the same instance as TestComponent6, but with a portfolio of tabu search trajectories, one per available core.
+ */
+class TestPortfolio {
+
+    public static void main(String[] args) {
+
+        // Initialize a GreedyVRP instance
+        GreedyVRP greedyVRP = new GreedyVRP();
+
+        // Find a greedy solution
+        Solution solution = greedyVRP.findSolution();
+
+        // One trajectory per core, all of them sharing the distance matrix
+        int cores = Runtime.getRuntime().availableProcessors();
+        PortfolioSearchVRP portfolio = new PortfolioSearchVRP(greedyVRP.getDistanceMatrix(), cores);
+
+        // Print the initial cost found using greedy method
+        System.out.println("Initial Cost: " + solution.getTotalCost());
+
+        Solution bestSolution = portfolio.solve(solution,
+                PortfolioSearchVRP.Trajectory.mix(cores, 61092, greedyVRP.getDistanceMatrix().getSize() - 1), 200);
+
+        portfolio.shutdown();
+
+        // Print the best solution found
+        System.out.println("Best solution found by trajectory " + portfolio.getBestTrajectory());
+        System.out.println(bestSolution);
+    }
+}
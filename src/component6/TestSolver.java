@@ -0,0 +1,31 @@
+package component6;
+
+import component1.Solution;
+import component2.ProblemInitializer;
+
+/**
+ * Solves a large instance within a 500 ms budget, printing every improvement as it is found.
+ */
+class TestSolver {
+
+    public static void main(String[] args) {
+        ProblemInitializer instance = new ProblemInitializer(61092, 2000, 2000);
+        Solver solver = new Solver(instance.getDistanceMatrix());
+
+        solver.setListener(new SolverListener() {
+            @Override
+            public void onImprovement(Solution solution, int iteration, long elapsedNanos) {
+                System.out.printf("%.1f ms - Iteration %d - Cost: %.0f%n", elapsedNanos / 1e6, iteration,
+                        solution.getTotalCost());
+            }
+        });
+
+        long start = System.nanoTime();
+        Solution bestSolution = solver.solve(instance, 500, Integer.MAX_VALUE);
+        long elapsed = System.nanoTime() - start;
+
+        solver.shutdown();
+
+        System.out.printf("Returned after %.1f ms - Best Cost: %.0f%n", elapsed / 1e6, bestSolution.getTotalCost());
+    }
+}
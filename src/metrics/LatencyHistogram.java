@@ -0,0 +1,120 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies in nanoseconds, with one bucket per power of two. Bucket b counts the latencies in
+ * [2^(b-1), 2^b), so the percentiles it reports are accurate within a factor of two, which is enough to see where the
+ * time goes. Every bucket is a LongAdder, so threads that record at the same time do not contend.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * The number of buckets: one per bit of a long.
+     */
+    private static final int BUCKETS = 64;
+
+    /**
+     * The number of latencies of every bucket.
+     */
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    /**
+     * The sum of all latencies.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * The largest latency.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int b = 0; b < BUCKETS; b++) {
+            this.buckets[b] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        this.buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+        this.sum.add(nanos);
+        this.max.accumulate(nanos);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     */
+    public long getCount() {
+        long count = 0;
+
+        for (LongAdder bucket: this.buckets) {
+            count += bucket.sum();
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the sum of the recorded latencies in nanoseconds.
+     */
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * Returns the largest recorded latency in nanoseconds.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded latencies, in nanoseconds: the upper end of the
+     * bucket that holds it.
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The upper bound, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = this.buckets[b].sum();
+            count += counts[b];
+        }
+
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+
+            if (counts[b] > 0 && seen >= rank)
+                return Math.min(b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1, getMax());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Forgets every recorded latency.
+     */
+    public void reset() {
+        for (LongAdder bucket: this.buckets) {
+            bucket.reset();
+        }
+
+        this.sum.reset();
+        this.max.reset();
+    }
+}
@@ -0,0 +1,106 @@
+package metrics;
+
+import java.util.Locale;
+
+/**
+ * The values of the search metrics at some point in time. It does not change after it is taken.
+ */
+public final class MetricsSnapshot {
+
+    /**
+     * The value of every counter, indexed by the ordinal of SearchMetrics.Counter.
+     */
+    private final long[] counters;
+
+    /**
+     * The number of timings of every phase, indexed by the ordinal of SearchMetrics.Phase.
+     */
+    private final long[] counts;
+
+    /**
+     * The mean, median, 99th percentile and maximum latency of every phase, in nanoseconds.
+     */
+    private final long[] means, medians, p99s, maxima;
+
+    MetricsSnapshot(long[] counters, LatencyHistogram[] phases) {
+        this.counters = counters;
+        this.counts = new long[phases.length];
+        this.means = new long[phases.length];
+        this.medians = new long[phases.length];
+        this.p99s = new long[phases.length];
+        this.maxima = new long[phases.length];
+
+        for (int p = 0; p < phases.length; p++) {
+            this.counts[p] = phases[p].getCount();
+            this.means[p] = this.counts[p] == 0 ? 0 : phases[p].getSum() / this.counts[p];
+            this.medians[p] = phases[p].getPercentile(50);
+            this.p99s[p] = phases[p].getPercentile(99);
+            this.maxima[p] = phases[p].getMax();
+        }
+    }
+
+    public long get(SearchMetrics.Counter counter) {
+        return this.counters[counter.ordinal()];
+    }
+
+    public long getCount(SearchMetrics.Phase phase) {
+        return this.counts[phase.ordinal()];
+    }
+
+    public long getMeanNanos(SearchMetrics.Phase phase) {
+        return this.means[phase.ordinal()];
+    }
+
+    /**
+     * Returns an upper bound of the median latency of a phase, accurate within a factor of two.
+     */
+    public long getMedianNanos(SearchMetrics.Phase phase) {
+        return this.medians[phase.ordinal()];
+    }
+
+    /**
+     * Returns an upper bound of the 99th percentile latency of a phase, accurate within a factor of two.
+     */
+    public long getP99Nanos(SearchMetrics.Phase phase) {
+        return this.p99s[phase.ordinal()];
+    }
+
+    public long getMaxNanos(SearchMetrics.Phase phase) {
+        return this.maxima[phase.ordinal()];
+    }
+
+    /**
+     * Returns one line per phase, with its count and latencies in microseconds.
+     */
+    public String[] getPhaseSummaries() {
+        SearchMetrics.Phase[] phases = SearchMetrics.Phase.values();
+        String[] summaries = new String[phases.length];
+
+        for (SearchMetrics.Phase phase: phases) {
+            summaries[phase.ordinal()] = String.format(Locale.ROOT,
+                    "%s count=%d mean=%.1fus p50<=%.1fus p99<=%.1fus max=%.1fus", phase, getCount(phase),
+                    getMeanNanos(phase) / 1e3, getMedianNanos(phase) / 1e3, getP99Nanos(phase) / 1e3,
+                    getMaxNanos(phase) / 1e3);
+        }
+
+        return summaries;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("MetricsSnapshot{");
+
+        for (SearchMetrics.Counter counter: SearchMetrics.Counter.values()) {
+            if (counter.ordinal() > 0)
+                result.append(", ");
+
+            result.append(counter).append('=').append(get(counter));
+        }
+
+        for (String summary: getPhaseSummaries()) {
+            result.append("\n\t").append(summary);
+        }
+
+        return result.append('}').toString();
+    }
+}
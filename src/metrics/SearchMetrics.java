@@ -0,0 +1,196 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms of the searches, to tune e.g. the tabu horizon and the neighborhood sizes.
+ *
+ * The searches count in local variables within a neighborhood scan, and add the totals here once per scan, so the
+ * cost per candidate move is a register increment. The counters are LongAdders, which are striped per thread, so the
+ * threads of the parallel modes do not contend on them either.
+ *
+ * The values can be read with snapshot(), or through JMX after register().
+ */
+public final class SearchMetrics implements SearchMetricsMXBean {
+
+    /**
+     * The events that are counted.
+     */
+    public enum Counter {
+
+        /**
+         * Candidate moves whose cost was evaluated.
+         */
+        MOVES_EVALUATED,
+
+        /**
+         * Candidate moves that were skipped, because the destination route could not serve the demand.
+         */
+        CAPACITY_REJECTIONS,
+
+        /**
+         * Improving candidate moves that were rejected, because they were tabu.
+         */
+        TABU_REJECTIONS,
+
+        /**
+         * Improving candidate moves that were tabu, but were allowed by the aspiration criterion.
+         */
+        ASPIRATION_OVERRIDES,
+
+        /**
+         * New best solutions.
+         */
+        BEST_IMPROVEMENTS
+    }
+
+    /**
+     * The phases of a search that are timed.
+     */
+    public enum Phase {
+
+        /**
+         * The construction of the initial solution.
+         */
+        CONSTRUCT,
+
+        /**
+         * The search of the neighborhoods for the best moves of an iteration.
+         */
+        NEIGHBORHOOD_SCAN,
+
+        /**
+         * The application of the chosen move.
+         */
+        APPLY,
+
+        /**
+         * The copy of a new best solution.
+         */
+        CLONE
+    }
+
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+    public SearchMetrics() {
+        for (int c = 0; c < this.counters.length; c++) {
+            this.counters[c] = new LongAdder();
+        }
+
+        for (int p = 0; p < this.phases.length; p++) {
+            this.phases[p] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Adds to a counter.
+     *
+     * @param counter The counter
+     * @param amount The amount to be added
+     */
+    public void add(Counter counter, long amount) {
+        if (amount != 0)
+            this.counters[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Records the duration of a phase.
+     *
+     * @param phase The phase
+     * @param nanos The duration in nanoseconds
+     */
+    public void record(Phase phase, long nanos) {
+        this.phases[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Returns the current value of a counter.
+     */
+    public long get(Counter counter) {
+        return this.counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Returns the latency histogram of a phase.
+     */
+    public LatencyHistogram getHistogram(Phase phase) {
+        return this.phases[phase.ordinal()];
+    }
+
+    /**
+     * Returns the current values of every counter and the percentiles of every phase. The values are read one by one
+     * while the searches may still be running, so they are not an atomic view.
+     *
+     * @return MetricsSnapshot
+     */
+    public MetricsSnapshot snapshot() {
+        long[] counterValues = new long[this.counters.length];
+        for (int c = 0; c < counterValues.length; c++) {
+            counterValues[c] = this.counters[c].sum();
+        }
+
+        return new MetricsSnapshot(counterValues, this.phases);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, under "vrp:type=SearchMetrics,name=<name>".
+     *
+     * @param name The name of the metrics, e.g. the name of the solver
+     * @return The name of the registered MBean
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("vrp:type=SearchMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register the search metrics " + name, e);
+        }
+    }
+
+    @Override
+    public long getMovesEvaluated() {
+        return get(Counter.MOVES_EVALUATED);
+    }
+
+    @Override
+    public long getCapacityRejections() {
+        return get(Counter.CAPACITY_REJECTIONS);
+    }
+
+    @Override
+    public long getTabuRejections() {
+        return get(Counter.TABU_REJECTIONS);
+    }
+
+    @Override
+    public long getAspirationOverrides() {
+        return get(Counter.ASPIRATION_OVERRIDES);
+    }
+
+    @Override
+    public long getBestImprovements() {
+        return get(Counter.BEST_IMPROVEMENTS);
+    }
+
+    @Override
+    public String[] getPhaseSummaries() {
+        return snapshot().getPhaseSummaries();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter: this.counters) {
+            counter.reset();
+        }
+
+        for (LatencyHistogram phase: this.phases) {
+            phase.reset();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+/**
+ * The JMX view of the search metrics, e.g. for JConsole or a monitoring agent.
+ */
+public interface SearchMetricsMXBean {
+
+    long getMovesEvaluated();
+
+    long getCapacityRejections();
+
+    long getTabuRejections();
+
+    long getAspirationOverrides();
+
+    long getBestImprovements();
+
+    /**
+     * Returns one line per phase, with its count and latency percentiles.
+     */
+    String[] getPhaseSummaries();
+
+    /**
+     * Sets every counter and histogram back to zero.
+     */
+    void reset();
+}